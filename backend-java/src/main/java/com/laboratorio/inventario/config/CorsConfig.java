@@ -45,7 +45,8 @@ public class CorsConfig {
             "accept",
             "Origin",
             "Access-Control-Request-Method",
-            "Access-Control-Request-Headers"
+            "Access-Control-Request-Headers",
+            "X-Siguiente-Cursor"
         ));
         
         // Aplicar configuración a todas las rutas
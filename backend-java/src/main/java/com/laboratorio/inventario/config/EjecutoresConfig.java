@@ -0,0 +1,39 @@
+package com.laboratorio.inventario.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuración de los ejecutores de tareas en segundo plano
+ * 
+ * Los pools son acotados (hilos y cola) para que una ráfaga de trabajo
+ * no pueda agotar las conexiones de la base de datos.
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Configuration
+public class EjecutoresConfig {
+
+    /**
+     * Ejecutor de la publicación de alertas por WebSocket después del commit.
+     * Un solo hilo para que las alertas salgan en el orden en que se confirmaron;
+     * si la cola se llena, publica el hilo que confirmó la transacción.
+     */
+    @Bean(name = "ejecutorPublicacionAlertas")
+    public ThreadPoolTaskExecutor ejecutorPublicacionAlertas(
+            @Value("${alertas.websocket.cola-publicacion:10000}") int capacidadCola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("publicar-alertas-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
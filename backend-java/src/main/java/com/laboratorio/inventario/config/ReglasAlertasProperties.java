@@ -0,0 +1,53 @@
+package com.laboratorio.inventario.config;
+
+import com.laboratorio.inventario.enums.AmbitoRegla;
+import com.laboratorio.inventario.enums.PrioridadAlerta;
+import com.laboratorio.inventario.enums.TipoAlerta;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reglas de generación automática de alertas (alertas.reglas.lista[n].*)
+ *
+ * Cada regla indica el tipo de alerta, el ámbito (INSUMO o LOTE), la condición que
+ * dispara la alerta y su prioridad. Las condiciones se escriben como comparaciones
+ * entre métricas de la instantánea y números, unidas con "y":
+ *
+ *   DIAS_HASTA_CADUCIDAD >= 0 y DIAS_HASTA_CADUCIDAD <= 30
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "alertas.reglas")
+public class ReglasAlertasProperties {
+
+    // Días de salidas usados para calcular el consumo diario de la instantánea
+    private int diasConsumo = 30;
+
+    private List<Regla> lista = new ArrayList<>();
+
+    @Data
+    public static class Regla {
+
+        // Identificador de la regla (mensajes de error y datos adicionales de la alerta)
+        private String nombre;
+
+        private TipoAlerta tipo;
+
+        private AmbitoRegla ambito;
+
+        private String condicion;
+
+        // Prioridad si no se cumple ningún escalón
+        private PrioridadAlerta prioridad = PrioridadAlerta.MEDIA;
+
+        // Escalones "PRIORIDAD: condición" en orden; el primero que se cumple fija la prioridad
+        private List<String> prioridades = new ArrayList<>();
+    }
+}
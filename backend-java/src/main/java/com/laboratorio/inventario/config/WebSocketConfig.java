@@ -1,10 +1,26 @@
 package com.laboratorio.inventario.config;
 
+import com.laboratorio.inventario.service.ConsumidoresWebSocket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.security.Principal;
 
 /**
  * Configuración de WebSocket con STOMP
@@ -19,19 +35,130 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // Cabecera del frame CONNECT con el usuario de la bandeja
+    public static final String CABECERA_USUARIO = "usuario";
+
+    @Autowired
+    private ConsumidoresWebSocket consumidores;
+
+    // Planificador propio del broker (lo crea la configuración de STOMP), para los latidos
+    @Autowired
+    @Lazy
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler planificadorBroker;
+
+    // Intervalo de latidos del servidor y esperado del cliente (0 = sin latidos)
+    @Value("${websocket.broker.latido-ms:10000}")
+    private long latidoMs;
+
+    @Value("${websocket.canal-entrada.hilos:4}")
+    private int hilosEntrada;
+
+    @Value("${websocket.canal-entrada.cola:1000}")
+    private int colaEntrada;
+
+    @Value("${websocket.canal-salida.hilos:8}")
+    private int hilosSalida;
+
+    @Value("${websocket.canal-salida.cola:10000}")
+    private int colaSalida;
+
+    // Límites por sesión: al superarlos Spring cierra la sesión (cliente lento)
+    @Value("${websocket.transporte.limite-tiempo-envio-ms:10000}")
+    private int limiteTiempoEnvioMs;
+
+    @Value("${websocket.transporte.limite-buffer-envio-bytes:524288}")
+    private int limiteBufferEnvio;
+
+    @Value("${websocket.transporte.limite-mensaje-bytes:65536}")
+    private int limiteMensaje;
+
     /**
      * Configura el broker de mensajes
      * 
-     * - /topic: Para mensajes broadcast (uno a muchos)
+     * - /topic: Para mensajes broadcast (uno a muchos). Además de /topic/alertas hay temas
+     *   por prioridad, insumo y categoría (/topic/alertas/CRITICA, /topic/alertas/insumo/{id},
+     *   /topic/alertas/categoria/{categoria}) que DespachadorAlertas llena en el servidor
+     * - /queue: Para mensajes a un solo usuario (vía /user/queue/...)
      * - /app: Prefijo para mensajes de clientes al servidor
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Habilitar un broker simple en memoria para mensajes del tipo "pub-sub"
-        config.enableSimpleBroker("/topic");
+        // Habilitar un broker simple en memoria para mensajes del tipo "pub-sub".
+        // Los latidos detectan y cierran las conexiones muertas.
+        config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[] {latidoMs, latidoMs})
+                .setTaskScheduler(planificadorBroker);
+
+        // Con varios hilos de salida, las tramas de una sesión se escriben en el orden en que se publicaron
+        config.setPreservePublishOrder(true);
         
         // Prefijo de destino de aplicación para mapear mensajes desde el cliente
         config.setApplicationDestinationPrefixes("/app");
+
+        // /user/queue/alertas se resuelve a las sesiones del usuario de la conexión
+        config.setUserDestinationPrefix("/user");
+    }
+
+    /**
+     * Asocia cada sesión STOMP al usuario indicado en la cabecera "usuario" del CONNECT
+     * 
+     * No hay autenticación en la aplicación: el usuario solo selecciona la bandeja
+     * cuyas alertas recibe en /user/queue/alertas.
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(hilosEntrada)
+                .maxPoolSize(hilosEntrada)
+                .queueCapacity(colaEntrada);
+
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    String usuario = accessor.getFirstNativeHeader(CABECERA_USUARIO);
+                    if (usuario != null && !usuario.isBlank()) {
+                        String nombre = usuario.trim();
+                        Principal principal = () -> nombre;
+                        accessor.setUser(principal);
+                    }
+                }
+                return message;
+            }
+        });
+    }
+
+    /**
+     * Canal de salida (broker -> sesiones): pool acotado y protección frente a clientes lentos
+     * 
+     * Un cliente que no lee bloquea como mucho el hilo que le está escribiendo;
+     * ConsumidoresWebSocket descarta sus tramas o deja que los límites de transporte lo cierren.
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(hilosSalida)
+                .maxPoolSize(hilosSalida)
+                .queueCapacity(colaSalida);
+
+        registration.interceptors(consumidores);
+    }
+
+    /**
+     * Límites de transporte por sesión
+     * 
+     * - Tiempo máximo escribiendo una trama y bytes máximos en el búfer de envío:
+     *   al superarlos la sesión se cierra (cliente lento)
+     * - Tamaño máximo de un mensaje entrante
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(limiteTiempoEnvioMs)
+                .setSendBufferSizeLimit(limiteBufferEnvio)
+                .setMessageSizeLimit(limiteMensaje)
+                .addDecoratorFactory(consumidores);
     }
 
     /**
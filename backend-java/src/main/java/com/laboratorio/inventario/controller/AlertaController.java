@@ -1,21 +1,30 @@
 package com.laboratorio.inventario.controller;
 
 import com.laboratorio.inventario.dto.AlertaDTO;
+import com.laboratorio.inventario.dto.PaginaAlertasDTO;
+import com.laboratorio.inventario.dto.ResultadoLimpiezaDTO;
 import com.laboratorio.inventario.service.AlertaService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/alertas")
 @CrossOrigin(origins = "*")
 public class AlertaController {
 
+    private static final String CABECERA_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
+
     @Autowired
     private AlertaService alertaService;
 
@@ -24,23 +33,25 @@ public class AlertaController {
     // ==========================================
 
     /**
-     * GET /api/alertas
-     * Obtener todas las alertas
+     * GET /api/alertas?cursor=...&tamano=50
+     * Obtener todas las alertas (paginadas, de la más reciente a la más antigua)
      */
     @GetMapping
-    public ResponseEntity<List<AlertaDTO>> getAllAlertas() {
-        List<AlertaDTO> alertas = alertaService.listarTodas();
-        return ResponseEntity.ok(alertas);
+    public ResponseEntity<?> getAllAlertas(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return responderPagina(() -> alertaService.listarTodas(cursor, tamano));
     }
 
     /**
-     * GET /api/alertas/no-leidas
-     * Obtener solo alertas no leídas
+     * GET /api/alertas/no-leidas?cursor=...&tamano=50
+     * Obtener solo alertas no leídas (paginadas)
      */
     @GetMapping("/no-leidas")
-    public ResponseEntity<List<AlertaDTO>> getAlertasNoLeidas() {
-        List<AlertaDTO> alertas = alertaService.listarNoLeidas();
-        return ResponseEntity.ok(alertas);
+    public ResponseEntity<?> getAlertasNoLeidas(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return responderPagina(() -> alertaService.listarNoLeidas(cursor, tamano));
     }
 
     /**
@@ -99,38 +110,206 @@ public class AlertaController {
         return ResponseEntity.ok(response);
     }
 
+    // ==========================================
+    // OPERACIONES MASIVAS
+    // ==========================================
+
+    /**
+     * PUT /api/alertas/marcar-leidas
+     * Marcar varias alertas como leídas en una sola operación
+     * Body: {"ids": [1, 2, 3]} o un filtro {"tipo": "...", "prioridad": "...", "antesDe": "2025-10-01T00:00:00"}
+     */
+    @PutMapping("/marcar-leidas")
+    public ResponseEntity<Map<String, Object>> marcarVariasComoLeidas(
+            @RequestBody(required = false) Map<String, Object> request) {
+        Map<String, Object> criterio = request != null ? request : new HashMap<>();
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<Long> ids = leerIds(criterio);
+
+            int afectadas = ids != null
+                    ? alertaService.marcarComoLeidas(ids)
+                    : alertaService.marcarComoLeidasPorFiltro(
+                            (String) criterio.get("tipo"),
+                            (String) criterio.get("prioridad"),
+                            leerFecha(criterio.get("antesDe")));
+
+            response.put("message", "Alertas marcadas como leídas");
+            response.put("afectadas", afectadas);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+
+    /**
+     * PUT /api/alertas/leer-todas
+     * Marcar todas las alertas no leídas como leídas
+     */
+    @PutMapping("/leer-todas")
+    public ResponseEntity<Map<String, Object>> marcarTodasComoLeidas() {
+        return marcarVariasComoLeidas(null);
+    }
+
+    /**
+     * POST /api/alertas/eliminar
+     * Eliminar varias alertas en una sola operación
+     * Body: {"ids": [1, 2, 3]} o un filtro {"tipo": "...", "prioridad": "...", "antesDe": "2025-10-01"}
+     */
+    @PostMapping("/eliminar")
+    public ResponseEntity<Map<String, Object>> eliminarVarias(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<Long> ids = leerIds(request);
+
+            int afectadas = ids != null
+                    ? alertaService.eliminarVarias(ids)
+                    : alertaService.eliminarPorFiltro(
+                            (String) request.get("tipo"),
+                            (String) request.get("prioridad"),
+                            leerFecha(request.get("antesDe")));
+
+            response.put("message", "Alertas eliminadas correctamente");
+            response.put("afectadas", afectadas);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+
+    private List<Long> leerIds(Map<String, Object> request) {
+        Object ids = request.get("ids");
+        if (!(ids instanceof List<?> lista)) {
+            return null;
+        }
+        // NumberFormatException es una IllegalArgumentException: responde 400
+        return lista.stream()
+                .map(id -> Long.valueOf(id.toString()))
+                .collect(Collectors.toList());
+    }
+
+    // Acepta fecha ("2025-10-01") o fecha y hora ("2025-10-01T08:00:00")
+    private LocalDateTime leerFecha(Object valor) {
+        if (valor == null || valor.toString().isBlank()) {
+            return null;
+        }
+        String texto = valor.toString();
+        try {
+            return texto.length() == 10 ? LocalDate.parse(texto).atStartOfDay() : LocalDateTime.parse(texto);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha inválida en antesDe: " + texto);
+        }
+    }
+
     // ==========================================
     // BÚSQUEDAS Y FILTROS
     // ==========================================
 
     /**
-     * GET /api/alertas/tipo/{tipo}
-     * Buscar alertas por tipo
+     * GET /api/alertas/tipo/{tipo}?cursor=...&tamano=50
+     * Buscar alertas por tipo (paginadas)
      */
     @GetMapping("/tipo/{tipo}")
-    public ResponseEntity<List<AlertaDTO>> getAlertasPorTipo(@PathVariable String tipo) {
-        List<AlertaDTO> alertas = alertaService.buscarPorTipo(tipo);
-        return ResponseEntity.ok(alertas);
+    public ResponseEntity<?> getAlertasPorTipo(
+            @PathVariable String tipo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return responderPagina(() -> alertaService.buscarPorTipo(tipo, cursor, tamano));
     }
 
     /**
-     * GET /api/alertas/prioridad/{prioridad}
-     * Buscar alertas por prioridad
+     * GET /api/alertas/prioridad/{prioridad}?cursor=...&tamano=50
+     * Buscar alertas por prioridad (paginadas)
      */
     @GetMapping("/prioridad/{prioridad}")
-    public ResponseEntity<List<AlertaDTO>> getAlertasPorPrioridad(@PathVariable String prioridad) {
-        List<AlertaDTO> alertas = alertaService.buscarPorPrioridad(prioridad);
-        return ResponseEntity.ok(alertas);
+    public ResponseEntity<?> getAlertasPorPrioridad(
+            @PathVariable String prioridad,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return responderPagina(() -> alertaService.buscarPorPrioridad(prioridad, cursor, tamano));
     }
 
     /**
-     * GET /api/alertas/insumo/{insumoId}
-     * Buscar alertas de un insumo específico
+     * GET /api/alertas/insumo/{insumoId}?cursor=...&tamano=50
+     * Buscar alertas de un insumo específico (paginadas)
      */
     @GetMapping("/insumo/{insumoId}")
-    public ResponseEntity<List<AlertaDTO>> getAlertasPorInsumo(@PathVariable Long insumoId) {
-        List<AlertaDTO> alertas = alertaService.buscarPorInsumo(insumoId);
-        return ResponseEntity.ok(alertas);
+    public ResponseEntity<?> getAlertasPorInsumo(
+            @PathVariable Long insumoId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return responderPagina(() -> alertaService.buscarPorInsumo(insumoId, cursor, tamano));
+    }
+
+    // ==========================================
+    // BANDEJA POR USUARIO
+    // ==========================================
+
+    /**
+     * GET /api/alertas/bandeja/{usuario}?cursor=...&tamano=50
+     * Alertas de la bandeja del usuario, con su propio estado de lectura (paginadas)
+     */
+    @GetMapping("/bandeja/{usuario}")
+    public ResponseEntity<?> getBandeja(
+            @PathVariable String usuario,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return responderPagina(() -> alertaService.listarBandeja(usuario, cursor, tamano));
+    }
+
+    /**
+     * GET /api/alertas/bandeja/{usuario}/no-leidas?cursor=...&tamano=50
+     * Alertas no leídas de la bandeja del usuario (paginadas)
+     */
+    @GetMapping("/bandeja/{usuario}/no-leidas")
+    public ResponseEntity<?> getBandejaNoLeidas(
+            @PathVariable String usuario,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return responderPagina(() -> alertaService.listarNoLeidasBandeja(usuario, cursor, tamano));
+    }
+
+    /**
+     * GET /api/alertas/bandeja/{usuario}/contador
+     * Número de alertas no leídas del usuario (contador en memoria)
+     */
+    @GetMapping("/bandeja/{usuario}/contador")
+    public ResponseEntity<Map<String, Object>> getContadorBandeja(@PathVariable String usuario) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("usuario", usuario);
+        response.put("noLeidas", alertaService.contarNoLeidasBandeja(usuario));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * PUT /api/alertas/bandeja/{usuario}/{id}/marcar-leida
+     * Marcar una alerta como leída solo en la bandeja del usuario
+     */
+    @PutMapping("/bandeja/{usuario}/{id}/marcar-leida")
+    public ResponseEntity<Map<String, Object>> marcarComoLeidaEnBandeja(
+            @PathVariable String usuario,
+            @PathVariable Long id) {
+        if (!alertaService.marcarComoLeidaEnBandeja(usuario, id)) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("usuario", usuario);
+        response.put("noLeidas", alertaService.contarNoLeidasBandeja(usuario));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * PUT /api/alertas/bandeja/{usuario}/leer-todas
+     * Marcar como leída toda la bandeja del usuario
+     */
+    @PutMapping("/bandeja/{usuario}/leer-todas")
+    public ResponseEntity<Map<String, Object>> marcarTodasComoLeidasEnBandeja(@PathVariable String usuario) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("usuario", usuario);
+        response.put("afectadas", alertaService.marcarTodasComoLeidasEnBandeja(usuario));
+        return ResponseEntity.ok(response);
     }
 
     // ==========================================
@@ -202,7 +381,7 @@ public class AlertaController {
      * Crear una alerta personalizada
      */
     @PostMapping("/crear-personalizada")
-    public ResponseEntity<AlertaDTO> crearAlertaPersonalizada(
+    public ResponseEntity<?> crearAlertaPersonalizada(
             @RequestBody Map<String, Object> request) {
         
         String tipo = (String) request.get("tipo");
@@ -213,12 +392,18 @@ public class AlertaController {
                         Long.valueOf(request.get("insumoId").toString()) : null;
         Long loteId = request.get("loteId") != null ? 
                       Long.valueOf(request.get("loteId").toString()) : null;
-
-        AlertaDTO alerta = alertaService.crearAlertaPersonalizada(
-                tipo, prioridad, titulo, mensaje, insumoId, loteId
-        );
-
-        return ResponseEntity.status(HttpStatus.CREATED).body(alerta);
+        String usuarioDestinatario = (String) request.get("usuarioDestinatario");
+
+        try {
+            AlertaDTO alerta = alertaService.crearAlertaPersonalizada(
+                    tipo, prioridad, titulo, mensaje, insumoId, loteId, usuarioDestinatario
+            );
+            return ResponseEntity.status(HttpStatus.CREATED).body(alerta);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
     }
 
     // ==========================================
@@ -227,7 +412,7 @@ public class AlertaController {
 
     /**
      * GET /api/alertas/estadisticas
-     * Obtener estadísticas de alertas
+     * Obtener estadísticas de alertas (desde los contadores en memoria)
      */
     @GetMapping("/estadisticas")
     public ResponseEntity<Map<String, Object>> getEstadisticas() {
@@ -241,10 +426,10 @@ public class AlertaController {
         
         // Resumen por tipo
         Map<String, Long> porTipo = new HashMap<>();
-        porTipo.put("stockBajo", (long) alertaService.buscarPorTipo("STOCK_BAJO").size());
-        porTipo.put("caducidad", (long) alertaService.buscarPorTipo("CADUCIDAD").size());
-        porTipo.put("vencido", (long) alertaService.buscarPorTipo("VENCIDO").size());
-        porTipo.put("agotamiento", (long) alertaService.buscarPorTipo("AGOTAMIENTO_PROXIMO").size());
+        porTipo.put("stockBajo", alertaService.contarPorTipo("STOCK_BAJO"));
+        porTipo.put("caducidad", alertaService.contarPorTipo("CADUCIDAD"));
+        porTipo.put("vencido", alertaService.contarPorTipo("VENCIDO"));
+        porTipo.put("agotamiento", alertaService.contarPorTipo("AGOTAMIENTO_PROXIMO"));
         stats.put("porTipo", porTipo);
         
         return ResponseEntity.ok(stats);
@@ -252,15 +437,15 @@ public class AlertaController {
 
     /**
      * GET /api/alertas/resumen
-     * Obtener resumen rápido de alertas
+     * Obtener resumen rápido de alertas (desde los contadores en memoria)
      */
     @GetMapping("/resumen")
     public ResponseEntity<Map<String, Object>> getResumen() {
         Map<String, Object> resumen = new HashMap<>();
         
         Long noLeidas = alertaService.contarNoLeidas();
-        Long urgentes = (long) alertaService.buscarAlertasUrgentes().size();
-        Long hoy = (long) alertaService.buscarAlertasDeHoy().size();
+        Long urgentes = alertaService.contarUrgentes();
+        Long hoy = alertaService.contarDeHoy();
         
         resumen.put("noLeidas", noLeidas);
         resumen.put("urgentes", urgentes);
@@ -276,19 +461,53 @@ public class AlertaController {
 
     /**
      * DELETE /api/alertas/limpiar-antiguas?dias=30
-     * Limpiar alertas antiguas leídas
+     * Limpiar alertas antiguas leídas (por bloques; informa filas y bytes liberados)
      */
     @DeleteMapping("/limpiar-antiguas")
-    public ResponseEntity<Map<String, String>> limpiarAlertasAntiguas(
+    public ResponseEntity<?> limpiarAlertasAntiguas(
             @RequestParam(defaultValue = "30") int dias) {
         
-        alertaService.limpiarAlertasAntiguas(dias);
-        
-        Map<String, String> response = new HashMap<>();
-        response.put("message", "Alertas antiguas eliminadas correctamente");
-        response.put("diasAntiguedad", String.valueOf(dias));
-        
-        return ResponseEntity.ok(response);
+        try {
+            ResultadoLimpiezaDTO resultado = alertaService.limpiarAlertasAntiguas(dias);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Alertas antiguas eliminadas correctamente");
+            response.put("diasAntiguedad", dias);
+            response.put("resultado", resultado);
+
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        }
+    }
+
+    // ==========================================
+    // PAGINACIÓN
+    // ==========================================
+
+    /**
+     * El cuerpo sigue siendo la lista de alertas; el cursor de la página siguiente
+     * viaja en la cabecera X-Siguiente-Cursor (ausente en la última página)
+     */
+    private ResponseEntity<?> responderPagina(Supplier<PaginaAlertasDTO> consulta) {
+        try {
+            PaginaAlertasDTO pagina = consulta.get();
+            ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+            if (pagina.getSiguienteCursor() != null) {
+                respuesta.header(CABECERA_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+            }
+            return respuesta.body(pagina.getAlertas());
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
     }
 
     /**
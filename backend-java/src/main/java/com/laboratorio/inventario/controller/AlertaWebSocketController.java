@@ -1,16 +1,29 @@
 package com.laboratorio.inventario.controller;
 
 import com.laboratorio.inventario.dto.AlertaDTO;
+import com.laboratorio.inventario.dto.OperacionMasivaAlertasDTO;
+import com.laboratorio.inventario.dto.ReanudacionAlertasDTO;
+import com.laboratorio.inventario.dto.SolicitudReanudacionDTO;
 import com.laboratorio.inventario.service.AlertaService;
+import com.laboratorio.inventario.service.ConsumidoresWebSocket;
+import com.laboratorio.inventario.service.DespachadorAlertas;
+import com.laboratorio.inventario.service.SuscripcionesAlertas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador WebSocket para gestionar alertas en tiempo real
@@ -19,6 +32,10 @@ import java.util.List;
  * del sistema de inventario a los clientes conectados en tiempo real.
  * 
  * Utiliza STOMP sobre WebSocket para comunicación bidireccional.
+ * Las alertas de /topic/alertas y /user/queue/alertas se envían en tramas
+ * con un arreglo de alertas (ver DespachadorAlertas). Los clientes que solo
+ * vigilan una prioridad, unos insumos o una categoría se suscriben a sus temas
+ * (/topic/alertas/{prioridad}, /topic/alertas/insumo/{id}, /topic/alertas/categoria/{categoria}).
  * 
  * @author José Aníbal Cabrera Rodas
  * @version 1.0
@@ -28,26 +45,66 @@ public class AlertaWebSocketController {
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private DespachadorAlertas despachadorAlertas;
+
+    @Autowired
+    private SuscripcionesAlertas suscripcionesAlertas;
+
+    @Autowired
+    private ConsumidoresWebSocket consumidores;
+
+    // Ejecutores de los canales STOMP (configurados en WebSocketConfig)
+    @Autowired
+    @Qualifier("clientInboundChannelExecutor")
+    private TaskExecutor ejecutorEntrada;
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private TaskExecutor ejecutorSalida;
     
     @Autowired
     @Lazy  // ⭐ IMPORTANTE: Rompe la dependencia circular con AlertaServiceImpl
     private AlertaService alertaService;
 
     /**
-     * Envía una alerta a todos los clientes suscritos a /topic/alertas
+     * Envía una alerta a todos los clientes suscritos a /topic/alertas y a sus temas
      * 
      * Este método es llamado internamente por el servicio de alertas
-     * cuando se detecta una nueva alerta en el sistema.
+     * cuando se detecta una nueva alerta en el sistema. La alerta se
+     * encola y sale en la siguiente trama del canal general.
      * 
      * @param alerta La alerta DTO que se enviará a los clientes
      */
     public void enviarAlerta(AlertaDTO alerta) {
-        // Envía la alerta a todos los clientes suscritos al canal /topic/alertas
-        messagingTemplate.convertAndSend("/topic/alertas", alerta);
+        despachadorAlertas.encolar(alerta);
+    }
+
+    /**
+     * Envía una alerta a la bandeja de un usuario (/user/queue/alertas)
+     * 
+     * Solo la reciben las sesiones que se conectaron con ese usuario.
+     * 
+     * @param usuario Usuario destinatario
+     * @param alerta La alerta DTO que se enviará
+     */
+    public void enviarAlertaAUsuario(String usuario, AlertaDTO alerta) {
+        despachadorAlertas.encolarAUsuario(usuario, alerta);
+    }
+
+    /**
+     * Envía a /topic/alertas/masivo un único mensaje por operación masiva
+     * (marcar como leídas o eliminar varias alertas)
+     * 
+     * @param operacion Operación con su criterio (IDs o filtro) y el número de alertas afectadas
+     */
+    public void enviarOperacionMasiva(OperacionMasivaAlertasDTO operacion) {
+        messagingTemplate.convertAndSend("/topic/alertas/masivo", operacion);
         
-        System.out.println("🔔 Alerta enviada por WebSocket: " + 
-                          alerta.getTipo() + " - " + 
-                          alerta.getTitulo());
+        System.out.println("🔔 Operación masiva enviada por WebSocket: " + 
+                          operacion.getOperacion() + " - " + 
+                          operacion.getAfectadas() + " alertas");
     }
 
     /**
@@ -57,13 +114,37 @@ public class AlertaWebSocketController {
      * Útil para testing y para que clientes puedan disparar alertas
      * 
      * @param alerta Alerta DTO recibida del cliente
-     * @return La misma alerta que se enviará a todos los suscritos
+     * @return Trama con la misma alerta que se enviará a todos los suscritos
      */
     @MessageMapping("/alertas")
     @SendTo("/topic/alertas")
-    public AlertaDTO recibirAlerta(AlertaDTO alerta) {
+    public List<AlertaDTO> recibirAlerta(AlertaDTO alerta) {
         System.out.println("📨 Mensaje recibido del cliente: " + alerta.getTitulo());
-        return alerta;
+        return List.of(alerta);
+    }
+
+    /**
+     * Reanudación de un cliente que se reconecta (/app/alertas/reanudar)
+     * 
+     * El cliente envía la instancia y secuencia de la última trama que recibió (o el ID de
+     * la última alerta) y recibe solo en su sesión, en /user/queue/alertas/reanudar, las
+     * alertas que le faltan del canal general (o de su bandeja si se conectó con usuario),
+     * en orden de ID. Si no caben en una trama llega "completa = false" y el cliente repite
+     * la solicitud con el ID de la última alerta recibida.
+     * 
+     * @param solicitud Última posición conocida por el cliente
+     * @param principal Usuario de la conexión (cabecera "usuario" del CONNECT), puede ser null
+     * @return Alertas pendientes y la posición desde la que continuar
+     */
+    @MessageMapping("/alertas/reanudar")
+    @SendToUser(destinations = "/queue/alertas/reanudar", broadcast = false)
+    public ReanudacionAlertasDTO reanudar(SolicitudReanudacionDTO solicitud, Principal principal) {
+        ReanudacionAlertasDTO reanudacion = alertaService.reanudarSincronizacion(
+                principal != null ? principal.getName() : null, solicitud);
+        
+        System.out.println("🔄 Reanudación WebSocket (" + reanudacion.getOrigen() + "): " +
+                          reanudacion.getAlertas().size() + " alertas");
+        return reanudacion;
     }
 
     /**
@@ -91,7 +172,8 @@ public class AlertaWebSocketController {
             titulo,
             "Esta es una alerta de prueba enviada desde el servidor para verificar WebSocket",
             null,  // Sin insumo
-            null   // Sin lote
+            null,  // Sin lote
+            null   // Sin destinatario: canal general
         );
         
         // Envía la alerta por WebSocket
@@ -103,7 +185,8 @@ public class AlertaWebSocketController {
     /**
      * Obtiene todas las alertas no leídas y las envía por WebSocket
      * 
-     * Útil para sincronizar clientes que acaban de conectarse
+     * Se reenvían a TODOS los clientes de /topic/alertas. Un cliente que se reconecta
+     * debe usar /app/alertas/reanudar, que solo le envía lo que le falta.
      * 
      * GET http://localhost:8081/api/websocket/alertas/sync
      * 
@@ -121,6 +204,43 @@ public class AlertaWebSocketController {
         return "✅ " + alertasNoLeidas.size() + " alertas no leídas enviadas por WebSocket";
     }
 
+    /**
+     * Métricas del envío de alertas por WebSocket
+     * 
+     * Ocupación de los canales de entrada y salida, tramas descartadas y sesiones
+     * cerradas por clientes lentos, estado de cada sesión y contadores del despachador.
+     * 
+     * GET http://localhost:8081/api/websocket/metricas
+     * 
+     * @return Métricas actuales
+     */
+    @GetMapping("/api/websocket/metricas")
+    @ResponseBody
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+
+        // Canales STOMP
+        metricas.put("canalEntrada", metricasDe(ejecutorEntrada));
+        metricas.put("canalSalida", metricasDe(ejecutorSalida));
+
+        // Clientes lentos
+        metricas.put("politicaConsumidorLento", consumidores.getPolitica());
+        metricas.put("tramasDescartadas", consumidores.getTramasDescartadas());
+        metricas.put("sesionesCerradasPorLimite", consumidores.getSesionesCerradasPorLimite());
+        metricas.put("sesionesCerradasPorLentitud", consumidores.getSesionesCerradasPorLentitud());
+        metricas.put("sesiones", consumidores.getMetricasPorSesion());
+
+        // Despachador de alertas
+        metricas.put("tramasEnviadas", despachadorAlertas.getTramasEnviadas());
+        metricas.put("alertasEnviadas", despachadorAlertas.getAlertasEnviadas());
+        metricas.put("alertasCoalescidas", despachadorAlertas.getAlertasCoalescidas());
+        metricas.put("ultimaSecuencia", despachadorAlertas.getUltimaSecuencia());
+        metricas.put("reanudacionesDesdeMemoria", despachadorAlertas.getReanudacionesDesdeMemoria());
+        metricas.put("suscripcionesATemas", suscripcionesAlertas.getSuscripcionesATemas());
+
+        return metricas;
+    }
+
     /**
      * Envía un broadcast de prueba a todos los clientes conectados
      * 
@@ -142,10 +262,11 @@ public class AlertaWebSocketController {
             "Notificación del Sistema",
             mensaje,
             null,
+            null,
             null
         );
         
-        messagingTemplate.convertAndSend("/topic/alertas", broadcast);
+        enviarAlerta(broadcast);
         
         return "📡 Broadcast enviado a todos los clientes: " + mensaje;
     }
@@ -171,6 +292,7 @@ public class AlertaWebSocketController {
             titulo,
             mensaje,
             null,
+            null,
             null
         );
         
@@ -179,4 +301,19 @@ public class AlertaWebSocketController {
         
         return "🚨 EMERGENCIA ENVIADA: " + titulo;
     }
-}
\ No newline at end of file
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private static Map<String, Object> metricasDe(TaskExecutor ejecutor) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        if (ejecutor instanceof ThreadPoolTaskExecutor pool) {
+            datos.put("hilos", pool.getPoolSize());
+            datos.put("hilosActivos", pool.getActiveCount());
+            datos.put("enCola", pool.getQueueSize());
+            datos.put("capacidadLibre", pool.getThreadPoolExecutor().getQueue().remainingCapacity());
+        }
+        return datos;
+    }
+}
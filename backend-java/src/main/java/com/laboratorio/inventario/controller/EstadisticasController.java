@@ -2,7 +2,7 @@ package com.laboratorio.inventario.controller;
 
 import com.laboratorio.inventario.dto.EstadisticasDTO;
 import com.laboratorio.inventario.service.InsumoService;
-import com.laboratorio.inventario.service.LoteService;
+import com.laboratorio.inventario.service.InventarioEnMemoria;
 //import com.laboratorio.inventario.service.ConsumoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -19,8 +19,9 @@ public class EstadisticasController {
     @Autowired
     private InsumoService insumoService;
 
+    // Los contadores de stock y caducidad se calculan sobre la instantánea en memoria
     @Autowired
-    private LoteService loteService;
+    private InventarioEnMemoria inventarioEnMemoria;
 
     @Autowired
     //private ConsumoService consumoService;
@@ -35,9 +36,9 @@ public class EstadisticasController {
         
         // Estadísticas de Insumos
         stats.setTotalInsumos((long) insumoService.listarTodos().size());
-        stats.setInsumosActivos(insumoService.contarInsumosActivos());
+        stats.setInsumosActivos(inventarioEnMemoria.contarInsumosActivos());
         stats.setInsumosConAlerta(insumoService.contarInsumosConAlerta());
-        stats.setInsumosBajoMinimo(insumoService.contarInsumosBajoMinimo());
+        stats.setInsumosBajoMinimo(inventarioEnMemoria.contarInsumosBajoMinimo());
         stats.setInsumosCriticos(insumoService.obtenerInsumosConAlerta()
                 .stream()
                 .filter(i -> "critico".equals(i.getNivelAlerta()))
@@ -49,9 +50,9 @@ public class EstadisticasController {
         stats.setValorInsumosBajoMinimo(calcularValorInsumosBajoMinimo());
         
         // Estadísticas de Lotes
-        stats.setLotesVencidos(loteService.contarLotesVencidos());
-        stats.setLotesProximosVencer(loteService.contarLotesProximosVencer(30));
-        stats.setLotesProximosVencer7Dias(loteService.contarLotesProximosVencer(7));
+        stats.setLotesVencidos(inventarioEnMemoria.contarLotesVencidos());
+        stats.setLotesProximosVencer(inventarioEnMemoria.contarLotesProximosVencer(30));
+        stats.setLotesProximosVencer7Dias(inventarioEnMemoria.contarLotesProximosVencer(7));
         
         // Consumo
         stats.setConsumoPromedioDiario(0.0); // Implementar promedio general si es necesario
@@ -62,7 +63,7 @@ public class EstadisticasController {
         stats.setSalidasMes(0L); // Implementar cuando tengamos el servicio de salidas
         
         // Distribución por categoría
-        stats.setInsumosPorCategoria(contarPorCategoria());
+        stats.setInsumosPorCategoria(inventarioEnMemoria.contarInsumosPorCategoria());
         stats.setValorPorCategoria(insumoService.calcularValorPorCategoria());
         
         // Proveedores
@@ -84,15 +85,15 @@ public class EstadisticasController {
     public ResponseEntity<Map<String, Object>> getResumen() {
         Map<String, Object> resumen = new HashMap<>();
         
-        resumen.put("insumosActivos", insumoService.contarInsumosActivos());
+        resumen.put("insumosActivos", inventarioEnMemoria.contarInsumosActivos());
         resumen.put("insumosAlerta", insumoService.contarInsumosConAlerta());
         resumen.put("insumosCriticos", insumoService.obtenerInsumosConAlerta()
                 .stream()
                 .filter(i -> "critico".equals(i.getNivelAlerta()))
                 .count());
         resumen.put("valorInventario", insumoService.calcularValorTotalInventario());
-        resumen.put("lotesVencidos", loteService.contarLotesVencidos());
-        resumen.put("lotesProximosVencer", loteService.contarLotesProximosVencer(30));
+        resumen.put("lotesVencidos", inventarioEnMemoria.contarLotesVencidos());
+        resumen.put("lotesProximosVencer", inventarioEnMemoria.contarLotesProximosVencer(30));
         
         return ResponseEntity.ok(resumen);
     }
@@ -110,12 +111,12 @@ public class EstadisticasController {
                 .stream()
                 .filter(i -> "critico".equals(i.getNivelAlerta()))
                 .count());
-        alertas.put("insumosBajoMinimo", insumoService.contarInsumosBajoMinimo());
+        alertas.put("insumosBajoMinimo", inventarioEnMemoria.contarInsumosBajoMinimo());
         
         // Alertas de caducidad
-        alertas.put("lotesVencidos", loteService.contarLotesVencidos());
-        alertas.put("lotesVencenEn7Dias", loteService.contarLotesProximosVencer(7));
-        alertas.put("lotesVencenEn30Dias", loteService.contarLotesProximosVencer(30));
+        alertas.put("lotesVencidos", inventarioEnMemoria.contarLotesVencidos());
+        alertas.put("lotesVencenEn7Dias", inventarioEnMemoria.contarLotesProximosVencer(7));
+        alertas.put("lotesVencenEn30Dias", inventarioEnMemoria.contarLotesProximosVencer(30));
         
         // Insumos que se agotarán pronto
         long insumosAgotamientoProximo = insumoService.obtenerInsumosPorStockRestante(7).size();
@@ -133,10 +134,10 @@ public class EstadisticasController {
         Map<String, Object> stats = new HashMap<>();
         
         stats.put("totalInsumos", (long) insumoService.listarTodos().size());
-        stats.put("insumosActivos", insumoService.contarInsumosActivos());
+        stats.put("insumosActivos", inventarioEnMemoria.contarInsumosActivos());
         stats.put("valorTotal", insumoService.calcularValorTotalInventario());
         stats.put("valorPorCategoria", insumoService.calcularValorPorCategoria());
-        stats.put("distribucionPorCategoria", contarPorCategoria());
+        stats.put("distribucionPorCategoria", inventarioEnMemoria.contarInsumosPorCategoria());
         
         return ResponseEntity.ok(stats);
     }
@@ -168,15 +169,4 @@ public class EstadisticasController {
                 })
                 .sum();
     }
-
-    private Map<String, Long> contarPorCategoria() {
-        Map<String, Long> conteo = new HashMap<>();
-        
-        insumoService.listarActivos().forEach(insumo -> {
-            String categoria = insumo.getCategoria() != null ? insumo.getCategoria() : "Sin categoría";
-            conteo.put(categoria, conteo.getOrDefault(categoria, 0L) + 1);
-        });
-        
-        return conteo;
-    }
 }
\ No newline at end of file
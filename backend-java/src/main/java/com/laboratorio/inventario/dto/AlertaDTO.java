@@ -1,10 +1,14 @@
 package com.laboratorio.inventario.dto;
 
+import com.laboratorio.inventario.entity.Alerta;
+import com.laboratorio.inventario.enums.PrioridadAlerta;
+import com.laboratorio.inventario.enums.TipoAlerta;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Data
 @NoArgsConstructor
@@ -21,6 +25,7 @@ public class AlertaDTO {
     private Long insumoId;
     private String insumoNombre;
     private String insumoCodigoCatalogo;
+    private String insumoCategoria;
     
     // Información del lote relacionado
     private Long loteId;
@@ -43,6 +48,39 @@ public class AlertaDTO {
     private Boolean esUrgente;
     private Long minutosDesdeCreacion;
     
+    // Constructor de proyección JPQL (SELECT new ...): una sola consulta con LEFT JOIN
+    // a insumo y lote, sin cargar entidades gestionadas
+    public AlertaDTO(Long id, TipoAlerta tipo, PrioridadAlerta prioridad, String titulo, String mensaje,
+                     Long insumoId, String insumoNombre, String insumoCodigoCatalogo, String insumoCategoria,
+                     Long loteId, String loteNumero,
+                     Boolean leida, LocalDateTime fechaCreacion, LocalDateTime fechaLectura,
+                     String usuarioDestinatario, String datosAdicionales) {
+        this.id = id;
+        this.tipo = tipo.name();
+        this.prioridad = prioridad.name();
+        this.titulo = titulo;
+        this.mensaje = mensaje;
+        this.insumoId = insumoId;
+        this.insumoNombre = insumoNombre;
+        this.insumoCodigoCatalogo = insumoCodigoCatalogo;
+        this.insumoCategoria = insumoCategoria;
+        this.loteId = loteId;
+        this.loteNumero = loteNumero;
+        this.leida = leida;
+        this.fechaCreacion = fechaCreacion;
+        this.fechaLectura = fechaLectura;
+        this.usuarioDestinatario = usuarioDestinatario;
+        this.datosAdicionales = datosAdicionales;
+
+        // Campos calculados
+        this.icono = Alerta.iconoDeTipo(tipo);
+        this.color = Alerta.colorDePrioridad(prioridad);
+        this.esUrgente = prioridad.esUrgente();
+        if (fechaCreacion != null) {
+            this.minutosDesdeCreacion = ChronoUnit.MINUTES.between(fechaCreacion, LocalDateTime.now());
+        }
+    }
+    
     // Constructor simplificado para alertas básicas
     public AlertaDTO(String tipo, String prioridad, String titulo, String mensaje) {
         this.tipo = tipo;
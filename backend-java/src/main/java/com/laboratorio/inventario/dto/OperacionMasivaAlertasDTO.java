@@ -0,0 +1,29 @@
+package com.laboratorio.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Mensaje WebSocket compacto de una operación masiva sobre alertas
+ * (un solo mensaje por operación en lugar de uno por alerta)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperacionMasivaAlertasDTO {
+
+    private String operacion; // MARCAR_LEIDAS, ELIMINAR
+
+    // Criterio aplicado: lista de IDs o filtro (los campos nulos no filtran)
+    private List<Long> ids;
+    private String tipo;
+    private String prioridad;
+    private LocalDateTime antesDe;
+
+    private Integer afectadas;
+    private LocalDateTime fecha;
+}
@@ -0,0 +1,19 @@
+package com.laboratorio.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaAlertasDTO {
+
+    // Alertas de la página, de la más reciente a la más antigua
+    private List<AlertaDTO> alertas;
+
+    // Cursor para pedir la página siguiente; null si no hay más
+    private String siguienteCursor;
+}
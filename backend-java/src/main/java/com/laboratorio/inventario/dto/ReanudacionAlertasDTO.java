@@ -0,0 +1,29 @@
+package com.laboratorio.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Respuesta a una reanudación (/user/queue/alertas/reanudar): las alertas que
+ * le faltan al cliente en una sola trama y la posición desde la que continuar
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReanudacionAlertasDTO {
+
+    // Posición del canal incluida en la respuesta (para la siguiente reanudación)
+    private String instancia;
+    private Long ultimaSecuencia;
+
+    private String origen; // MEMORIA (búfer de repetición) o BASE_DATOS
+
+    // false si faltaban más alertas de las que caben en una respuesta: el cliente pide el resto
+    // con ultimaAlertaId = la última de esta respuesta (las alertas vienen en orden de ID)
+    private Boolean completa;
+
+    private List<AlertaDTO> alertas;
+}
@@ -0,0 +1,41 @@
+package com.laboratorio.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoLimpiezaDTO {
+
+    // Alertas leídas anteriores a esta fecha
+    private LocalDateTime fechaLimite;
+
+    // Filas borradas de la tabla alertas
+    private long filasEliminadas;
+
+    // Filas copiadas a las tablas de archivo mensuales antes de borrarlas
+    private long filasArchivadas;
+
+    // Bloques de IDs procesados (una transacción corta por bloque)
+    private int bloques;
+
+    // Estimación: filas eliminadas × tamaño medio de fila (information_schema)
+    private long bytesLiberadosEstimados;
+
+    // Tablas de archivo eliminadas por superar la retención del archivo
+    private List<String> tablasArchivoEliminadas = new ArrayList<>();
+
+    // Bytes (datos + índices) de las tablas de archivo eliminadas
+    private long bytesArchivoEliminados;
+
+    private long duracionMs;
+
+    // false si la limpieza se interrumpió antes de terminar
+    private boolean completada;
+}
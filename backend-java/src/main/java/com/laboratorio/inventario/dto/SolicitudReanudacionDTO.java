@@ -0,0 +1,22 @@
+package com.laboratorio.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Mensaje de un cliente WebSocket que se reconecta (/app/alertas/reanudar):
+ * lo último que recibió antes de desconectarse (los campos nulos indican que no recibió nada)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolicitudReanudacionDTO {
+
+    // Cabeceras "instancia" y "secuencia" de la última trama de alertas recibida
+    private String instancia;
+    private Long ultimaSecuencia;
+
+    // ID de la última alerta recibida (si no conoce la secuencia)
+    private Long ultimaAlertaId;
+}
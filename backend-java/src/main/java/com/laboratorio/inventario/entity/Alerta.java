@@ -1,27 +1,54 @@
 package com.laboratorio.inventario.entity;
 
+import com.laboratorio.inventario.enums.PrioridadAlerta;
+import com.laboratorio.inventario.enums.TipoAlerta;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "alertas")
+@Table(name = "alertas", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_alertas_clave_dedup", columnNames = "clave_dedup")
+}, indexes = {
+        // Índices de la paginación por cursor (fecha_creacion, id)
+        @Index(name = "idx_alertas_fecha_id", columnList = "fecha_creacion, id"),
+        @Index(name = "idx_alertas_leida_fecha_id", columnList = "leida, fecha_creacion, id"),
+        @Index(name = "idx_alertas_tipo_fecha_id", columnList = "tipo, fecha_creacion, id"),
+        @Index(name = "idx_alertas_prioridad_fecha_id", columnList = "prioridad, fecha_creacion, id"),
+        @Index(name = "idx_alertas_insumo_fecha_id", columnList = "insumo_id, fecha_creacion, id"),
+        // Urgentes y no leídas por prioridad; duplicados por tipo e insumo
+        @Index(name = "idx_alertas_leida_prioridad_fecha", columnList = "leida, prioridad, fecha_creacion"),
+        @Index(name = "idx_alertas_tipo_insumo_fecha", columnList = "tipo, insumo_id, fecha_creacion")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Alerta {
 
+    // Tabla de IDs compartida con SecuenciaAlertas, que reserva bloques para las inserciones por lotes
+    // ("siguiente" = próximo ID libre: requiere hibernate.id.generator.stored_last_used=false)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "alertas_secuencia")
+    @TableGenerator(name = "alertas_secuencia", table = "alertas_secuencia",
+            pkColumnName = "nombre", valueColumnName = "siguiente", pkColumnValue = "alertas",
+            allocationSize = 1)
     private Long id;
 
+    // Nombre de la constante en una columna VARCHAR: añadir constantes no requiere cambiar el esquema
+    // (EsquemaAlertas convierte las columnas ENUM antiguas y normaliza los valores desconocidos)
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
     @Column(name = "tipo", nullable = false, length = 50)
-    private String tipo; // STOCK_BAJO, CADUCIDAD, VENCIDO, AGOTAMIENTO_PROXIMO
+    private TipoAlerta tipo;
 
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
     @Column(name = "prioridad", nullable = false, length = 20)
-    private String prioridad; // CRITICA, ALTA, MEDIA, BAJA
+    private PrioridadAlerta prioridad;
 
     @Column(name = "titulo", nullable = false, length = 200)
     private String titulo;
@@ -52,6 +79,12 @@ public class Alerta {
     @Column(name = "datos_adicionales", columnDefinition = "TEXT")
     private String datosAdicionales; // JSON con información extra
 
+    @Column(name = "clave_dedup", length = 150)
+    private String claveDedup; // tipo|insumo|lote|día; null en alertas personalizadas
+
+    @Column(name = "nivel_escalado")
+    private Integer nivelEscalado; // pasos de escalado ya aplicados (null = ninguno)
+
     @PrePersist
     protected void onCreate() {
         fechaCreacion = LocalDateTime.now();
@@ -66,40 +99,37 @@ public class Alerta {
         this.fechaLectura = LocalDateTime.now();
     }
 
+    // Método para asignar la clave de duplicados (mismo tipo, insumo y lote en el mismo día)
+    public void asignarClaveDedup() {
+        this.claveDedup = String.join("|",
+                tipo.name(),
+                insumo != null ? String.valueOf(insumo.getId()) : "-",
+                lote != null ? String.valueOf(lote.getId()) : "-",
+                fechaCreacion.toLocalDate().toString());
+    }
+
     // Método para determinar si es urgente
     public boolean esUrgente() {
-        return "CRITICA".equals(prioridad) || "ALTA".equals(prioridad);
+        return prioridad != null && prioridad.esUrgente();
     }
 
     // Método para obtener el ícono según el tipo
     public String getIcono() {
-        switch (tipo) {
-            case "STOCK_BAJO":
-                return "📦";
-            case "CADUCIDAD":
-                return "⏰";
-            case "VENCIDO":
-                return "❌";
-            case "AGOTAMIENTO_PROXIMO":
-                return "⚠️";
-            default:
-                return "ℹ️";
-        }
+        return iconoDeTipo(tipo);
     }
 
     // Método para obtener el color según la prioridad
     public String getColor() {
-        switch (prioridad) {
-            case "CRITICA":
-                return "#DC2626"; // Rojo
-            case "ALTA":
-                return "#EA580C"; // Naranja
-            case "MEDIA":
-                return "#F59E0B"; // Amarillo
-            case "BAJA":
-                return "#3B82F6"; // Azul
-            default:
-                return "#6B7280"; // Gris
-        }
+        return colorDePrioridad(prioridad);
+    }
+
+    // Versiones estáticas: permiten calcular estos campos en proyecciones sin cargar la entidad
+
+    public static String iconoDeTipo(TipoAlerta tipo) {
+        return tipo != null ? tipo.getIcono() : "ℹ️";
+    }
+
+    public static String colorDePrioridad(PrioridadAlerta prioridad) {
+        return prioridad != null ? prioridad.getColor() : "#6B7280"; // Gris
     }
 }
\ No newline at end of file
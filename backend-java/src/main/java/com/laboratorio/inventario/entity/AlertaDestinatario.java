@@ -0,0 +1,55 @@
+package com.laboratorio.inventario.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import java.time.LocalDateTime;
+
+/**
+ * Entrada de una alerta en la bandeja de un usuario
+ *
+ * Se escribe al crear la alerta (una fila por destinatario), de modo que cada usuario
+ * consulta solo su parte y tiene su propio estado de lectura.
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Entity
+@Table(name = "alertas_destinatarios", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_alertas_destinatarios_alerta_usuario", columnNames = {"alerta_id", "usuario"})
+}, indexes = {
+        // Paginación por cursor de la bandeja (fecha_creacion, alerta_id), completa o solo no leídas
+        @Index(name = "idx_alertas_destinatarios_usuario_fecha", columnList = "usuario, fecha_creacion, alerta_id"),
+        @Index(name = "idx_alertas_destinatarios_usuario_leida_fecha", columnList = "usuario, leida, fecha_creacion, alerta_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertaDestinatario {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // ON DELETE CASCADE: la limpieza y los borrados masivos de alertas vacían también las bandejas
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "alerta_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Alerta alerta;
+
+    @Column(name = "usuario", nullable = false, length = 100)
+    private String usuario;
+
+    @Column(name = "leida", nullable = false)
+    private Boolean leida = false;
+
+    // Copia de la fecha de la alerta: la bandeja se ordena sin unir con alertas
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_lectura")
+    private LocalDateTime fechaLectura;
+}
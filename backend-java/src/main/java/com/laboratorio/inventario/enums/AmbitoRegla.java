@@ -0,0 +1,19 @@
+package com.laboratorio.inventario.enums;
+
+/**
+ * Enum para el ámbito de una regla de alertas: sobre qué filas de la instantánea se evalúa
+ */
+public enum AmbitoRegla {
+    INSUMO("Insumo"),
+    LOTE("Lote");
+
+    private final String nombre;
+
+    AmbitoRegla(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+}
@@ -35,4 +35,24 @@ public enum PrioridadAlerta {
     public boolean esMasPrioritaria(PrioridadAlerta otra) {
         return this.nivel < otra.nivel;
     }
+
+    // Urgentes: CRITICA y ALTA
+    public boolean esUrgente() {
+        return this.nivel <= ALTA.nivel;
+    }
+
+    /**
+     * Convierte el texto recibido en la API (null si no se indica)
+     * @throws IllegalArgumentException si la prioridad no existe
+     */
+    public static PrioridadAlerta desdeTexto(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(texto.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Prioridad de alerta no válida: " + texto);
+        }
+    }
 }
\ No newline at end of file
@@ -4,19 +4,23 @@ package com.laboratorio.inventario.enums;
  * Enum para los tipos de alertas del sistema
  */
 public enum TipoAlerta {
-    STOCK_BAJO("Stock Bajo", "El insumo está por debajo del nivel mínimo"),
-    CADUCIDAD("Próximo a Vencer", "El lote está próximo a su fecha de caducidad"),
-    VENCIDO("Vencido", "El lote ha superado su fecha de caducidad"),
-    AGOTAMIENTO_PROXIMO("Agotamiento Inminente", "El insumo se agotará pronto según el consumo actual"),
-    REORDEN_SUGERIDO("Reorden Sugerido", "Se sugiere realizar un pedido de reposición"),
-    INVENTARIO_CRITICO("Inventario Crítico", "Múltiples insumos en estado crítico");
+    STOCK_BAJO("Stock Bajo", "El insumo está por debajo del nivel mínimo", "📦"),
+    CADUCIDAD("Próximo a Vencer", "El lote está próximo a su fecha de caducidad", "⏰"),
+    VENCIDO("Vencido", "El lote ha superado su fecha de caducidad", "❌"),
+    AGOTAMIENTO_PROXIMO("Agotamiento Inminente", "El insumo se agotará pronto según el consumo actual", "⚠️"),
+    REORDEN_SUGERIDO("Reorden Sugerido", "Se sugiere realizar un pedido de reposición", "ℹ️"),
+    INVENTARIO_CRITICO("Inventario Crítico", "Múltiples insumos en estado crítico", "🚨"),
+    SISTEMA("Sistema", "Mensaje general del sistema", "ℹ️"),
+    OTRO("Otro", "Alerta personalizada", "ℹ️");
 
     private final String nombre;
     private final String descripcion;
+    private final String icono;
 
-    TipoAlerta(String nombre, String descripcion) {
+    TipoAlerta(String nombre, String descripcion, String icono) {
         this.nombre = nombre;
         this.descripcion = descripcion;
+        this.icono = icono;
     }
 
     public String getNombre() {
@@ -26,4 +30,23 @@ public enum TipoAlerta {
     public String getDescripcion() {
         return descripcion;
     }
-}
\ No newline at end of file
+
+    public String getIcono() {
+        return icono;
+    }
+
+    /**
+     * Convierte el texto recibido en la API (null si no se indica)
+     * @throws IllegalArgumentException si el tipo no existe
+     */
+    public static TipoAlerta desdeTexto(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(texto.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Tipo de alerta no válido: " + texto);
+        }
+    }
+}
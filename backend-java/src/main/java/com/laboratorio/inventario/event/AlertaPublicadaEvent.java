@@ -0,0 +1,64 @@
+package com.laboratorio.inventario.event;
+
+import com.laboratorio.inventario.dto.AlertaDTO;
+import com.laboratorio.inventario.dto.OperacionMasivaAlertasDTO;
+
+import java.util.List;
+
+/**
+ * Evento publicado cuando una alerta (o una operación masiva) debe notificarse por WebSocket
+ * 
+ * Se envía a los clientes solo después del commit de la transacción que lo publicó,
+ * de modo que nunca se notifica una alerta que luego se deshace.
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+public class AlertaPublicadaEvent {
+
+    private final AlertaDTO alerta;
+    private final boolean canalGeneral;
+    private final List<String> usuarios;
+    private final OperacionMasivaAlertasDTO operacionMasiva;
+
+    private AlertaPublicadaEvent(AlertaDTO alerta, boolean canalGeneral, List<String> usuarios,
+                                 OperacionMasivaAlertasDTO operacionMasiva) {
+        this.alerta = alerta;
+        this.canalGeneral = canalGeneral;
+        this.usuarios = usuarios;
+        this.operacionMasiva = operacionMasiva;
+    }
+
+    /**
+     * Alerta creada o actualizada
+     * 
+     * @param canalGeneral Si se envía a /topic/alertas
+     * @param usuarios Bandejas (/user/queue/alertas) a las que se envía
+     */
+    public static AlertaPublicadaEvent deAlerta(AlertaDTO alerta, boolean canalGeneral, List<String> usuarios) {
+        return new AlertaPublicadaEvent(alerta, canalGeneral, List.copyOf(usuarios), null);
+    }
+
+    /**
+     * Operación masiva (un único mensaje a /topic/alertas/masivo)
+     */
+    public static AlertaPublicadaEvent deOperacionMasiva(OperacionMasivaAlertasDTO operacion) {
+        return new AlertaPublicadaEvent(null, false, List.of(), operacion);
+    }
+
+    public AlertaDTO getAlerta() {
+        return alerta;
+    }
+
+    public boolean isCanalGeneral() {
+        return canalGeneral;
+    }
+
+    public List<String> getUsuarios() {
+        return usuarios;
+    }
+
+    public OperacionMasivaAlertasDTO getOperacionMasiva() {
+        return operacionMasiva;
+    }
+}
@@ -0,0 +1,50 @@
+package com.laboratorio.inventario.event;
+
+/**
+ * Evento publicado cuando se escribe un Insumo, un Lote o una Salida
+ * 
+ * Permite re-evaluar las alertas solo de los elementos modificados
+ * en lugar de recorrer todo el inventario en cada ciclo.
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+public class InventarioModificadoEvent {
+
+    private final Long insumoId;
+    private final Long loteId;
+
+    private InventarioModificadoEvent(Long insumoId, Long loteId) {
+        this.insumoId = insumoId;
+        this.loteId = loteId;
+    }
+
+    /**
+     * Alta, actualización o baja de un insumo
+     */
+    public static InventarioModificadoEvent deInsumo(Long insumoId) {
+        return new InventarioModificadoEvent(insumoId, null);
+    }
+
+    /**
+     * Alta, actualización o baja de un lote
+     */
+    public static InventarioModificadoEvent deLote(Long loteId, Long insumoId) {
+        return new InventarioModificadoEvent(insumoId, loteId);
+    }
+
+    /**
+     * Registro de una salida (consumo) de un insumo
+     */
+    public static InventarioModificadoEvent deSalida(Long insumoId) {
+        return new InventarioModificadoEvent(insumoId, null);
+    }
+
+    public Long getInsumoId() {
+        return insumoId;
+    }
+
+    public Long getLoteId() {
+        return loteId;
+    }
+}
@@ -0,0 +1,46 @@
+package com.laboratorio.inventario.event;
+
+import com.laboratorio.inventario.controller.AlertaWebSocketController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Publica por WebSocket las alertas confirmadas
+ * 
+ * Atiende los AlertaPublicadaEvent después del commit (o inmediatamente si se
+ * publicaron fuera de una transacción) en el ejecutor de publicación, así que
+ * ni la serialización ni el reparto a las sesiones alargan la transacción.
+ * El ejecutor tiene un solo hilo para conservar el orden de los eventos.
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class PublicadorAlertas {
+
+    @Autowired
+    private AlertaWebSocketController webSocketController;
+
+    @Async("ejecutorPublicacionAlertas")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAlertaPublicada(AlertaPublicadaEvent evento) {
+        try {
+            if (evento.getOperacionMasiva() != null) {
+                webSocketController.enviarOperacionMasiva(evento.getOperacionMasiva());
+                return;
+            }
+
+            if (evento.isCanalGeneral()) {
+                webSocketController.enviarAlerta(evento.getAlerta());
+            }
+            for (String usuario : evento.getUsuarios()) {
+                webSocketController.enviarAlertaAUsuario(usuario, evento.getAlerta());
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error publicando alerta por WebSocket: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.laboratorio.inventario.event;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conjunto de insumos y lotes pendientes de re-evaluar ("dirty set")
+ * 
+ * Acumula los IDs recibidos en los eventos de inventario una vez confirmada
+ * la transacción, y la tarea programada los drena en cada ciclo incremental.
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class RegistroCambiosInventario {
+
+    private final Set<Long> insumosPendientes = ConcurrentHashMap.newKeySet();
+    private final Set<Long> lotesPendientes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Registra el cambio después del commit (o inmediatamente si no hay transacción)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventarioModificado(InventarioModificadoEvent evento) {
+        if (evento.getInsumoId() != null) {
+            insumosPendientes.add(evento.getInsumoId());
+        }
+        if (evento.getLoteId() != null) {
+            lotesPendientes.add(evento.getLoteId());
+        }
+    }
+
+    public boolean hayCambiosPendientes() {
+        return !insumosPendientes.isEmpty() || !lotesPendientes.isEmpty();
+    }
+
+    /**
+     * Extrae y vacía los insumos pendientes
+     */
+    public Set<Long> drenarInsumos() {
+        return drenar(insumosPendientes);
+    }
+
+    /**
+     * Extrae y vacía los lotes pendientes
+     */
+    public Set<Long> drenarLotes() {
+        return drenar(lotesPendientes);
+    }
+
+    /**
+     * Devuelve al conjunto los IDs de un ciclo que falló, para re-evaluarlos en el siguiente
+     */
+    public void devolver(Set<Long> insumoIds, Set<Long> loteIds) {
+        insumosPendientes.addAll(insumoIds);
+        lotesPendientes.addAll(loteIds);
+    }
+
+    // Los IDs que lleguen mientras se drena quedan para el siguiente ciclo
+    private Set<Long> drenar(Set<Long> pendientes) {
+        Set<Long> ids = new HashSet<>();
+        for (Iterator<Long> it = pendientes.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        return ids;
+    }
+}
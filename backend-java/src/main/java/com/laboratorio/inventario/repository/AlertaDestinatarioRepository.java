@@ -0,0 +1,146 @@
+package com.laboratorio.inventario.repository;
+
+import com.laboratorio.inventario.dto.AlertaDTO;
+import com.laboratorio.inventario.entity.AlertaDestinatario;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio de las bandejas de alertas por usuario
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Repository
+public interface AlertaDestinatarioRepository extends JpaRepository<AlertaDestinatario, Long>, AlertaDestinatarioRepositoryCustom {
+
+    /**
+     * Proyección plana a AlertaDTO con el estado de lectura del usuario (no el global de la alerta)
+     */
+    String PROYECCION_BANDEJA =
+            "SELECT new com.laboratorio.inventario.dto.AlertaDTO(" +
+            "a.id, a.tipo, a.prioridad, a.titulo, a.mensaje, " +
+            "i.id, i.nombre, i.codigoCatalogo, i.categoria, l.id, l.numeroLote, " +
+            "d.leida, d.fechaCreacion, d.fechaLectura, d.usuario, a.datosAdicionales) " +
+            "FROM AlertaDestinatario d JOIN d.alerta a LEFT JOIN a.insumo i LEFT JOIN a.lote l ";
+
+    // ==========================================
+    // PAGINACIÓN POR CURSOR (fechaCreacion, alerta)
+    // ==========================================
+
+    /**
+     * Página de la bandeja de un usuario (índice idx_alertas_destinatarios_usuario_fecha)
+     */
+    @Query(PROYECCION_BANDEJA +
+           "WHERE d.usuario = :usuario " +
+           "AND (d.fechaCreacion < :fecha OR (d.fechaCreacion = :fecha AND d.alerta.id < :id)) " +
+           "ORDER BY d.fechaCreacion DESC, d.alerta.id DESC")
+    List<AlertaDTO> findPaginaDesde(
+            @Param("usuario") String usuario,
+            @Param("fecha") LocalDateTime fecha,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * Página de las alertas no leídas de un usuario (índice idx_alertas_destinatarios_usuario_leida_fecha)
+     */
+    @Query(PROYECCION_BANDEJA +
+           "WHERE d.usuario = :usuario AND d.leida = false " +
+           "AND (d.fechaCreacion < :fecha OR (d.fechaCreacion = :fecha AND d.alerta.id < :id)) " +
+           "ORDER BY d.fechaCreacion DESC, d.alerta.id DESC")
+    List<AlertaDTO> findPaginaNoLeidasDesde(
+            @Param("usuario") String usuario,
+            @Param("fecha") LocalDateTime fecha,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * Entradas de la bandeja de un usuario posteriores a un ID de alerta, en orden de creación
+     * (reanudación WebSocket)
+     */
+    @Query(PROYECCION_BANDEJA +
+           "WHERE d.usuario = :usuario AND d.alerta.id > :id ORDER BY d.alerta.id ASC")
+    List<AlertaDTO> findPosterioresA(
+            @Param("usuario") String usuario,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * Entradas no leídas de la bandeja de un usuario posteriores a un ID de alerta, en orden de
+     * creación (reanudación WebSocket de un cliente que no recibió ninguna)
+     */
+    @Query(PROYECCION_BANDEJA +
+           "WHERE d.usuario = :usuario AND d.leida = false AND d.alerta.id > :id ORDER BY d.alerta.id ASC")
+    List<AlertaDTO> findNoLeidasPosterioresA(
+            @Param("usuario") String usuario,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    // ==========================================
+    // LECTURA
+    // ==========================================
+
+    /**
+     * Marcar como leída una alerta en la bandeja del usuario
+     * @return 1 si estaba sin leer, 0 en otro caso
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AlertaDestinatario d SET d.leida = true, d.fechaLectura = :ahora " +
+           "WHERE d.usuario = :usuario AND d.alerta.id = :alertaId AND d.leida = false")
+    int marcarLeida(@Param("usuario") String usuario, @Param("alertaId") Long alertaId, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * IDs de las alertas urgentes sin leer en la bandeja del usuario, para cancelar su escalado
+     * antes de marcar toda la bandeja como leída
+     */
+    @Query("SELECT d.alerta.id FROM AlertaDestinatario d WHERE d.usuario = :usuario AND d.leida = false " +
+           "AND d.alerta.prioridad IN (" + AlertaRepository.PRIORIDADES_URGENTES + ")")
+    List<Long> findIdsUrgentesNoLeidas(@Param("usuario") String usuario);
+
+    /**
+     * Marcar como leída toda la bandeja del usuario
+     * @return Número de alertas marcadas
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AlertaDestinatario d SET d.leida = true, d.fechaLectura = :ahora " +
+           "WHERE d.usuario = :usuario AND d.leida = false")
+    int marcarTodasLeidas(@Param("usuario") String usuario, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Alertas (de entre las indicadas) que algún destinatario ya leyó en su bandeja
+     */
+    @Query("SELECT DISTINCT d.alerta.id FROM AlertaDestinatario d WHERE d.alerta.id IN :alertaIds AND d.leida = true")
+    List<Long> findAlertasLeidasEnBandeja(@Param("alertaIds") Collection<Long> alertaIds);
+
+    // ==========================================
+    // CONTADORES
+    // ==========================================
+
+    /**
+     * Usuarios que tienen la alerta sin leer (para descontarla al eliminarla)
+     */
+    @Query("SELECT d.usuario FROM AlertaDestinatario d WHERE d.alerta.id = :alertaId AND d.leida = false")
+    List<String> findUsuariosConAlertaNoLeida(@Param("alertaId") Long alertaId);
+
+    /**
+     * No leídas por usuario (reconciliación de los contadores en memoria)
+     * @return Lista de [usuario, count]
+     */
+    @Query("SELECT d.usuario, COUNT(d) FROM AlertaDestinatario d WHERE d.leida = false GROUP BY d.usuario")
+    List<Object[]> contarNoLeidasPorUsuario();
+}
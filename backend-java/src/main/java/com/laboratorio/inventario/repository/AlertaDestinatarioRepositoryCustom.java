@@ -0,0 +1,22 @@
+package com.laboratorio.inventario.repository;
+
+import com.laboratorio.inventario.entity.AlertaDestinatario;
+
+import java.util.List;
+
+/**
+ * Operaciones de AlertaDestinatarioRepository implementadas con JDBC
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+public interface AlertaDestinatarioRepositoryCustom {
+
+    /**
+     * Inserta en un lote JDBC las entradas de bandeja de las alertas recién creadas
+     * (una entrada repetida para el mismo usuario y alerta se descarta)
+     *
+     * @param destinatarios Entradas con alerta (ya insertada), usuario y fechaCreacion asignados
+     */
+    void insertarTodos(List<AlertaDestinatario> destinatarios);
+}
@@ -0,0 +1,41 @@
+package com.laboratorio.inventario.repository;
+
+import com.laboratorio.inventario.entity.AlertaDestinatario;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Implementación JDBC de AlertaDestinatarioRepositoryCustom
+ *
+ * Usa la conexión de la transacción en curso: las entradas se confirman junto con sus alertas.
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+public class AlertaDestinatarioRepositoryImpl implements AlertaDestinatarioRepositoryCustom {
+
+    private static final String SQL_INSERTAR =
+            "INSERT INTO alertas_destinatarios (alerta_id, usuario, leida, fecha_creacion) " +
+            "VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE alerta_id = alerta_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertarTodos(List<AlertaDestinatario> destinatarios) {
+        if (destinatarios.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INSERTAR, destinatarios, destinatarios.size(), (ps, destinatario) -> {
+            ps.setLong(1, destinatario.getAlerta().getId());
+            ps.setString(2, destinatario.getUsuario());
+            ps.setBoolean(3, Boolean.TRUE.equals(destinatario.getLeida()));
+            ps.setTimestamp(4, Timestamp.valueOf(destinatario.getFechaCreacion()));
+        });
+    }
+}
@@ -1,8 +1,12 @@
 package com.laboratorio.inventario.repository;
 
+import com.laboratorio.inventario.dto.AlertaDTO;
 import com.laboratorio.inventario.entity.Alerta;
 import com.laboratorio.inventario.entity.Insumo;
 import com.laboratorio.inventario.entity.Lote;
+import com.laboratorio.inventario.enums.PrioridadAlerta;
+import com.laboratorio.inventario.enums.TipoAlerta;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -11,7 +15,9 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio para la entidad Alerta
@@ -22,7 +28,23 @@ import java.util.List;
  * @version 1.0
  */
 @Repository
-public interface AlertaRepository extends JpaRepository<Alerta, Long> {
+public interface AlertaRepository extends JpaRepository<Alerta, Long>, AlertaRepositoryCustom {
+
+    /**
+     * Proyección plana a AlertaDTO: una sola consulta con LEFT JOIN a insumo y lote,
+     * sin cargar entidades gestionadas (evita las cargas EAGER en cascada por cada alerta)
+     */
+    String PROYECCION_DTO =
+            "SELECT new com.laboratorio.inventario.dto.AlertaDTO(" +
+            "a.id, a.tipo, a.prioridad, a.titulo, a.mensaje, " +
+            "i.id, i.nombre, i.codigoCatalogo, i.categoria, l.id, l.numeroLote, " +
+            "a.leida, a.fechaCreacion, a.fechaLectura, a.usuarioDestinatario, a.datosAdicionales) " +
+            "FROM Alerta a LEFT JOIN a.insumo i LEFT JOIN a.lote l ";
+
+    // Literales JPQL de las prioridades urgentes (constantes de PrioridadAlerta)
+    String PRIORIDADES_URGENTES =
+            "com.laboratorio.inventario.enums.PrioridadAlerta.CRITICA, " +
+            "com.laboratorio.inventario.enums.PrioridadAlerta.ALTA";
 
     // ==========================================
     // BÚSQUEDAS POR ESTADO DE LECTURA
@@ -53,21 +75,21 @@ public interface AlertaRepository extends JpaRepository<Alerta, Long> {
      * @param tipo STOCK_BAJO, CADUCIDAD, VENCIDO, AGOTAMIENTO_PROXIMO
      * @return Lista de alertas del tipo especificado
      */
-    List<Alerta> findByTipo(String tipo);
+    List<Alerta> findByTipo(TipoAlerta tipo);
 
     /**
      * Encuentra alertas por prioridad
      * @param prioridad CRITICA, ALTA, MEDIA, BAJA
      * @return Lista de alertas con la prioridad especificada
      */
-    List<Alerta> findByPrioridad(String prioridad);
+    List<Alerta> findByPrioridad(PrioridadAlerta prioridad);
 
     /**
      * Encuentra alertas críticas no leídas
      * @param prioridad CRITICA
      * @return Lista de alertas críticas pendientes ordenadas
      */
-    List<Alerta> findByPrioridadAndLeidaFalseOrderByFechaCreacionDesc(String prioridad);
+    List<Alerta> findByPrioridadAndLeidaFalseOrderByFechaCreacionDesc(PrioridadAlerta prioridad);
 
     /**
      * Encuentra alertas críticas no leídas
@@ -75,7 +97,7 @@ public interface AlertaRepository extends JpaRepository<Alerta, Long> {
      * @param leida false
      * @return Lista de alertas críticas pendientes
      */
-    List<Alerta> findByPrioridadAndLeidaFalse(String prioridad);
+    List<Alerta> findByPrioridadAndLeidaFalse(PrioridadAlerta prioridad);
 
     // ==========================================
     // BÚSQUEDAS POR INSUMO Y LOTE
@@ -129,20 +151,117 @@ public interface AlertaRepository extends JpaRepository<Alerta, Long> {
     List<Alerta> findByFechaCreacionBetween(LocalDateTime inicio, LocalDateTime fin);
 
     /**
-     * Buscar alertas de hoy
+     * Buscar alertas de hoy (proyección a DTO)
+     */
+    @Query(PROYECCION_DTO + "WHERE a.fechaCreacion >= :inicioDelDia ORDER BY a.fechaCreacion DESC, a.id DESC")
+    List<AlertaDTO> findDTODeHoy(@Param("inicioDelDia") LocalDateTime inicioDelDia);
+
+    // ==========================================
+    // PAGINACIÓN POR CURSOR (fechaCreacion, id)
+    // ==========================================
+
+    /**
+     * Alertas urgentes no leídas, para reconstruir la rueda de escalado al arrancar
+     * @return Lista de [id, prioridad, fechaCreacion, nivelEscalado]
+     */
+    @Query("SELECT a.id, a.prioridad, a.fechaCreacion, a.nivelEscalado FROM Alerta a " +
+           "WHERE a.leida = false AND a.prioridad IN (" + PRIORIDADES_URGENTES + ")")
+    List<Object[]> findPendientesEscalado();
+
+    /**
+     * IDs de las alertas urgentes no leídas que cumplen el filtro (los parámetros nulos no filtran),
+     * para cancelar su escalado antes de una operación masiva
+     */
+    @Query("SELECT a.id FROM Alerta a WHERE a.leida = false AND a.prioridad IN (" + PRIORIDADES_URGENTES + ") " +
+           "AND (:tipo IS NULL OR a.tipo = :tipo) " +
+           "AND (:prioridad IS NULL OR a.prioridad = :prioridad) " +
+           "AND (:antesDe IS NULL OR a.fechaCreacion < :antesDe)")
+    List<Long> findIdsPendientesEscaladoPorFiltro(
+            @Param("tipo") TipoAlerta tipo,
+            @Param("prioridad") PrioridadAlerta prioridad,
+            @Param("antesDe") LocalDateTime antesDe
+    );
+
+    /**
+     * Página de alertas anteriores a la posición (fecha, id), de la más reciente a la más antigua
+     * (Usa el índice idx_alertas_fecha_id)
+     */
+    @Query(PROYECCION_DTO +
+           "WHERE a.fechaCreacion < :fecha OR (a.fechaCreacion = :fecha AND a.id < :id) " +
+           "ORDER BY a.fechaCreacion DESC, a.id DESC")
+    List<AlertaDTO> findPaginaDesde(@Param("fecha") LocalDateTime fecha, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Página de alertas no leídas (índice idx_alertas_leida_fecha_id)
+     */
+    @Query(PROYECCION_DTO +
+           "WHERE a.leida = false AND (a.fechaCreacion < :fecha OR (a.fechaCreacion = :fecha AND a.id < :id)) " +
+           "ORDER BY a.fechaCreacion DESC, a.id DESC")
+    List<AlertaDTO> findPaginaNoLeidasDesde(@Param("fecha") LocalDateTime fecha, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Alertas del canal general posteriores a un ID, en orden de creación (reanudación WebSocket)
+     */
+    @Query(PROYECCION_DTO +
+           "WHERE a.id > :id AND a.usuarioDestinatario IS NULL ORDER BY a.id ASC")
+    List<AlertaDTO> findGeneralesPosterioresA(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Alertas no leídas del canal general posteriores a un ID, en orden de creación
+     * (reanudación WebSocket de un cliente que no recibió ninguna)
+     */
+    @Query(PROYECCION_DTO +
+           "WHERE a.id > :id AND a.leida = false AND a.usuarioDestinatario IS NULL ORDER BY a.id ASC")
+    List<AlertaDTO> findGeneralesNoLeidasPosterioresA(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Página de alertas de un tipo (índice idx_alertas_tipo_fecha_id)
+     */
+    @Query(PROYECCION_DTO +
+           "WHERE a.tipo = :tipo AND (a.fechaCreacion < :fecha OR (a.fechaCreacion = :fecha AND a.id < :id)) " +
+           "ORDER BY a.fechaCreacion DESC, a.id DESC")
+    List<AlertaDTO> findPaginaPorTipoDesde(@Param("tipo") TipoAlerta tipo, @Param("fecha") LocalDateTime fecha,
+                                        @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Página de alertas de una prioridad (índice idx_alertas_prioridad_fecha_id)
+     */
+    @Query(PROYECCION_DTO +
+           "WHERE a.prioridad = :prioridad AND (a.fechaCreacion < :fecha OR (a.fechaCreacion = :fecha AND a.id < :id)) " +
+           "ORDER BY a.fechaCreacion DESC, a.id DESC")
+    List<AlertaDTO> findPaginaPorPrioridadDesde(@Param("prioridad") PrioridadAlerta prioridad, @Param("fecha") LocalDateTime fecha,
+                                             @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Página de alertas de un insumo (índice idx_alertas_insumo_fecha_id)
      */
-    @Query("SELECT a FROM Alerta a WHERE DATE(a.fechaCreacion) = CURRENT_DATE ORDER BY a.fechaCreacion DESC")
-    List<Alerta> findAlertasDeHoy();
+    @Query(PROYECCION_DTO +
+           "WHERE a.insumo.id = :insumoId AND (a.fechaCreacion < :fecha OR (a.fechaCreacion = :fecha AND a.id < :id)) " +
+           "ORDER BY a.fechaCreacion DESC, a.id DESC")
+    List<AlertaDTO> findPaginaPorInsumoDesde(@Param("insumoId") Long insumoId, @Param("fecha") LocalDateTime fecha,
+                                          @Param("id") Long id, Pageable pageable);
 
     // ==========================================
     // CONSULTAS ESPECIALES
     // ==========================================
 
     /**
-     * Buscar alertas urgentes (críticas o altas) no leídas
+     * Buscar alertas urgentes (críticas o altas) no leídas (proyección a DTO)
      */
-    @Query("SELECT a FROM Alerta a WHERE a.leida = false AND a.prioridad IN ('CRITICA', 'ALTA') ORDER BY a.fechaCreacion DESC")
-    List<Alerta> findAlertasUrgentes();
+    @Query(PROYECCION_DTO + "WHERE a.leida = false AND a.prioridad IN (" + PRIORIDADES_URGENTES + ") ORDER BY a.fechaCreacion DESC, a.id DESC")
+    List<AlertaDTO> findDTOUrgentes();
+
+    /**
+     * Buscar alertas no leídas ordenadas por fecha (proyección a DTO)
+     */
+    @Query(PROYECCION_DTO + "WHERE a.leida = false ORDER BY a.fechaCreacion DESC, a.id DESC")
+    List<AlertaDTO> findDTONoLeidas();
+
+    /**
+     * Buscar una alerta por ID (proyección a DTO)
+     */
+    @Query(PROYECCION_DTO + "WHERE a.id = :id")
+    Optional<AlertaDTO> findDTOById(@Param("id") Long id);
 
     // ==========================================
     // CONTADORES
@@ -158,54 +277,88 @@ public interface AlertaRepository extends JpaRepository<Alerta, Long> {
      * Contar alertas no leídas por prioridad
      */
     @Query("SELECT COUNT(a) FROM Alerta a WHERE a.leida = false AND a.prioridad = :prioridad")
-    Long countByLeidaFalseAndPrioridad(@Param("prioridad") String prioridad);
+    Long countByLeidaFalseAndPrioridad(@Param("prioridad") PrioridadAlerta prioridad);
+
+    /**
+     * Contar alertas creadas desde una fecha (alertas de hoy)
+     */
+    long countByFechaCreacionGreaterThanEqual(LocalDateTime desde);
+
+    /**
+     * Conteo de todas las alertas agrupado por tipo, prioridad y estado de lectura
+     * (Usado para reconciliar los contadores en memoria con una sola consulta)
+     * 
+     * @return Filas [tipo, prioridad, leida, total]
+     */
+    @Query("SELECT a.tipo, a.prioridad, a.leida, COUNT(a) FROM Alerta a GROUP BY a.tipo, a.prioridad, a.leida")
+    List<Object[]> contarAgrupadoPorTipoPrioridadYLeida();
 
     // ==========================================
     // VERIFICACIÓN DE DUPLICADOS
     // ==========================================
 
     /**
-     * Verifica si existe una alerta reciente del mismo tipo para un insumo
-     * (Evita crear alertas duplicadas en las últimas 24 horas)
+     * Obtiene las claves (tipo, insumo, lote) de las alertas creadas desde una fecha
+     * (Permite descartar duplicados en memoria durante el ciclo automático con una sola consulta;
+     * la restricción única sobre clave_dedup es la garantía final, ver insertarSiNoExiste)
      * 
-     * @param tipo Tipo de alerta (STOCK_BAJO, AGOTAMIENTO_PROXIMO)
-     * @param insumoId ID del insumo
      * @param desde Fecha límite para considerar "reciente"
-     * @return true si existe una alerta similar reciente
+     * @return Filas [tipo, insumoId, loteId]; insumoId y loteId pueden ser null
      */
-    @Query("SELECT COUNT(a) > 0 FROM Alerta a WHERE a.tipo = :tipo AND a.insumo.id = :insumoId AND a.fechaCreacion > :desde")
-    boolean existeAlertaReciente(
-            @Param("tipo") String tipo,
-            @Param("insumoId") Long insumoId,
-            @Param("desde") LocalDateTime desde
-    );
+    @Query("SELECT a.tipo, i.id, l.id FROM Alerta a LEFT JOIN a.insumo i LEFT JOIN a.lote l WHERE a.fechaCreacion > :desde")
+    List<Object[]> findClavesAlertasRecientes(@Param("desde") LocalDateTime desde);
+
+    // ==========================================
+    // OPERACIONES MASIVAS
+    // ==========================================
 
     /**
-     * Verifica si existe una alerta reciente del mismo tipo para un lote específico
-     * (Evita crear alertas duplicadas de caducidad/vencimiento en las últimas 24 horas)
-     * 
-     * @param tipo Tipo de alerta (CADUCIDAD, VENCIDO)
-     * @param loteId ID del lote
-     * @param fechaLimite Fecha límite para considerar "reciente"
-     * @return true si existe una alerta similar reciente
-     */
-    @Query("SELECT COUNT(a) > 0 FROM Alerta a WHERE a.tipo = :tipo AND a.lote.id = :loteId AND a.fechaCreacion > :fechaLimite")
-    boolean existeAlertaRecienteLote(
-            @Param("tipo") String tipo,
-            @Param("loteId") Long loteId,
-            @Param("fechaLimite") LocalDateTime fechaLimite
+     * Marcar como leídas las alertas indicadas (una sola sentencia UPDATE)
+     * @return Número de alertas marcadas
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Alerta a SET a.leida = true, a.fechaLectura = :ahora WHERE a.leida = false AND a.id IN :ids")
+    int marcarLeidasPorIds(@Param("ids") Collection<Long> ids, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Marcar como leídas las alertas que cumplen el filtro (los parámetros nulos no filtran)
+     * @return Número de alertas marcadas
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Alerta a SET a.leida = true, a.fechaLectura = :ahora WHERE a.leida = false " +
+           "AND (:tipo IS NULL OR a.tipo = :tipo) " +
+           "AND (:prioridad IS NULL OR a.prioridad = :prioridad) " +
+           "AND (:antesDe IS NULL OR a.fechaCreacion < :antesDe)")
+    int marcarLeidasPorFiltro(
+            @Param("tipo") TipoAlerta tipo,
+            @Param("prioridad") PrioridadAlerta prioridad,
+            @Param("antesDe") LocalDateTime antesDe,
+            @Param("ahora") LocalDateTime ahora
     );
 
-    // ==========================================
-    // LIMPIEZA
-    // ==========================================
+    /**
+     * Eliminar las alertas indicadas (una sola sentencia DELETE)
+     * @return Número de alertas eliminadas
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Alerta a WHERE a.id IN :ids")
+    int eliminarPorIds(@Param("ids") Collection<Long> ids);
 
     /**
-     * Eliminar alertas antiguas leídas
-     * (Usado por la tarea programada de limpieza)
+     * Eliminar las alertas que cumplen el filtro (los parámetros nulos no filtran)
+     * @return Número de alertas eliminadas
      */
     @Modifying
     @Transactional
-    @Query("DELETE FROM Alerta a WHERE a.leida = true AND a.fechaCreacion < :fecha")
-    void eliminarAlertasAntiguasLeidas(@Param("fecha") LocalDateTime fecha);
+    @Query("DELETE FROM Alerta a WHERE (:tipo IS NULL OR a.tipo = :tipo) " +
+           "AND (:prioridad IS NULL OR a.prioridad = :prioridad) " +
+           "AND (:antesDe IS NULL OR a.fechaCreacion < :antesDe)")
+    int eliminarPorFiltro(
+            @Param("tipo") TipoAlerta tipo,
+            @Param("prioridad") PrioridadAlerta prioridad,
+            @Param("antesDe") LocalDateTime antesDe
+    );
 }
\ No newline at end of file
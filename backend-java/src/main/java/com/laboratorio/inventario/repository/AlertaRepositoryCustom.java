@@ -0,0 +1,23 @@
+package com.laboratorio.inventario.repository;
+
+import com.laboratorio.inventario.entity.Alerta;
+
+import java.util.List;
+
+/**
+ * Operaciones de AlertaRepository implementadas con JDBC
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+public interface AlertaRepositoryCustom {
+
+    /**
+     * Inserta las alertas en un lote JDBC, descartando las que ya existen con la misma clave de duplicados
+     * (La restricción única sobre clave_dedup resuelve las carreras entre el scheduler y las peticiones REST)
+     * 
+     * @param alertas Alertas con fechaCreacion (y claveDedup, si aplica) asignadas
+     * @return Alertas realmente insertadas, con su ID asignado
+     */
+    List<Alerta> insertarSiNoExisten(List<Alerta> alertas);
+}
@@ -0,0 +1,79 @@
+package com.laboratorio.inventario.repository;
+
+import com.laboratorio.inventario.entity.Alerta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Implementación JDBC de AlertaRepositoryCustom
+ * 
+ * Usa la conexión de la transacción en curso, igual que los métodos JPA del repositorio.
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+public class AlertaRepositoryImpl implements AlertaRepositoryCustom {
+
+    // "id = id" no modifica la fila existente: un duplicado no inserta nada
+    private static final String SQL_INSERTAR_SI_NO_EXISTE =
+            "INSERT INTO alertas (id, tipo, prioridad, titulo, mensaje, insumo_id, lote_id, leida, " +
+            "fecha_creacion, usuario_destinatario, datos_adicionales, clave_dedup) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE id = id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private SecuenciaAlertas secuenciaAlertas;
+
+    @Override
+    public List<Alerta> insertarSiNoExisten(List<Alerta> alertas) {
+        if (alertas.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // IDs asignados antes de insertar: permite enviar todo en un solo lote
+        long siguienteId = secuenciaAlertas.reservar(alertas.size());
+        for (Alerta alerta : alertas) {
+            alerta.setId(siguienteId++);
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INSERTAR_SI_NO_EXISTE, alertas, alertas.size(), (ps, alerta) -> {
+            ps.setLong(1, alerta.getId());
+            ps.setString(2, alerta.getTipo().name());
+            ps.setString(3, alerta.getPrioridad().name());
+            ps.setString(4, alerta.getTitulo());
+            ps.setString(5, alerta.getMensaje());
+            ps.setObject(6, alerta.getInsumo() != null ? alerta.getInsumo().getId() : null);
+            ps.setObject(7, alerta.getLote() != null ? alerta.getLote().getId() : null);
+            ps.setBoolean(8, Boolean.TRUE.equals(alerta.getLeida()));
+            ps.setTimestamp(9, Timestamp.valueOf(alerta.getFechaCreacion()));
+            ps.setString(10, alerta.getUsuarioDestinatario());
+            ps.setString(11, alerta.getDatosAdicionales());
+            ps.setString(12, alerta.getClaveDedup());
+        });
+
+        // Con rewriteBatchedStatements el driver no informa filas por sentencia:
+        // los IDs reservados que existen son exactamente los insertados
+        List<Long> ids = alertas.stream().map(Alerta::getId).collect(Collectors.toList());
+        Set<Long> insertados = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM alertas WHERE id IN (:ids)", Map.of("ids", ids), Long.class));
+
+        return alertas.stream()
+                .filter(alerta -> insertados.contains(alerta.getId()))
+                .collect(Collectors.toList());
+    }
+}
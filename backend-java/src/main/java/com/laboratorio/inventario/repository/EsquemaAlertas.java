@@ -0,0 +1,77 @@
+package com.laboratorio.inventario.repository;
+
+import com.laboratorio.inventario.enums.PrioridadAlerta;
+import com.laboratorio.inventario.enums.TipoAlerta;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Ajustes de las columnas tipo y prioridad de alertas al arrancar
+ * 
+ * ddl-auto=update no cambia el tipo de una columna existente: las bases creadas con columnas
+ * ENUM nativas no admitirían constantes nuevas, así que se pasan a VARCHAR. Además, las filas
+ * antiguas con valores libres (la API aceptaba cualquier texto) se llevan a OTRO / MEDIA para
+ * que la entidad y la proyección AlertaDTO puedan leerlas.
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class EsquemaAlertas {
+
+    private static final String SQL_TIPO_COLUMNA =
+            "SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'alertas' AND COLUMN_NAME = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Garantiza que Hibernate ya creó o actualizó la tabla (ddl-auto) antes de ajustarla
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void inicializar() {
+        convertirAVarchar("tipo", 50);
+        convertirAVarchar("prioridad", 20);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            int tipos = jdbcTemplate.update("UPDATE alertas SET tipo = ? WHERE tipo NOT IN (" +
+                    nombres(TipoAlerta.values()) + ")", TipoAlerta.OTRO.name());
+            int prioridades = jdbcTemplate.update("UPDATE alertas SET prioridad = ? WHERE prioridad NOT IN (" +
+                    nombres(PrioridadAlerta.values()) + ")", PrioridadAlerta.MEDIA.name());
+            if (tipos > 0 || prioridades > 0) {
+                System.out.println("🔧 Alertas con valores antiguos normalizadas: " + tipos +
+                        " tipo(s) a OTRO, " + prioridades + " prioridad(es) a MEDIA");
+            }
+        });
+    }
+
+    // Solo si la columna es ENUM: el ALTER reconstruye la tabla
+    private void convertirAVarchar(String columna, int longitud) {
+        String tipo = jdbcTemplate.query(SQL_TIPO_COLUMNA,
+                rs -> rs.next() ? rs.getString(1) : null, columna);
+        if ("enum".equalsIgnoreCase(tipo)) {
+            jdbcTemplate.execute("ALTER TABLE alertas MODIFY " + columna +
+                    " VARCHAR(" + longitud + ") NOT NULL");
+            System.out.println("🔧 Columna alertas." + columna + " convertida de ENUM a VARCHAR(" + longitud + ")");
+        }
+    }
+
+    private static String nombres(Enum<?>[] constantes) {
+        return Arrays.stream(constantes)
+                .map(constante -> "'" + constante.name() + "'")
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,6 +43,26 @@ public interface InsumoRepository extends JpaRepository<Insumo, Long> {
     @Query("SELECT i FROM Insumo i WHERE i.cantidadActual < i.cantidadMinima AND i.estado = 'activo'")
     List<Insumo> findInsumosBajoMinimo();
 
+    // Estado de todos los insumos para la instantánea en memoria (una sola consulta agregada)
+    // Devuelve filas [id, nombre, codigoCatalogo, cantidadActual, cantidadMinima, categoria, estado, totalSalidas]
+    @Query("SELECT i.id, i.nombre, i.codigoCatalogo, i.cantidadActual, i.cantidadMinima, i.categoria, i.estado, " +
+           "COALESCE(SUM(s.cantidad), 0) " +
+           "FROM Insumo i LEFT JOIN Salida s ON s.insumo = i AND s.fechaSalida BETWEEN :fechaInicio AND :fechaFin " +
+           "GROUP BY i.id, i.nombre, i.codigoCatalogo, i.cantidadActual, i.cantidadMinima, i.categoria, i.estado")
+    List<Object[]> findEstadoTodos(@Param("fechaInicio") LocalDate fechaInicio, @Param("fechaFin") LocalDate fechaFin);
+
+    // Igual que la anterior, limitado a los insumos indicados (refresco incremental)
+    @Query("SELECT i.id, i.nombre, i.codigoCatalogo, i.cantidadActual, i.cantidadMinima, i.categoria, i.estado, " +
+           "COALESCE(SUM(s.cantidad), 0) " +
+           "FROM Insumo i LEFT JOIN Salida s ON s.insumo = i AND s.fechaSalida BETWEEN :fechaInicio AND :fechaFin " +
+           "WHERE i.id IN :ids " +
+           "GROUP BY i.id, i.nombre, i.codigoCatalogo, i.cantidadActual, i.cantidadMinima, i.categoria, i.estado")
+    List<Object[]> findEstadoPorIds(
+            @Param("ids") Collection<Long> ids,
+            @Param("fechaInicio") LocalDate fechaInicio,
+            @Param("fechaFin") LocalDate fechaFin
+    );
+
     // Buscar insumos próximos a vencer
     @Query("SELECT i FROM Insumo i WHERE i.fechaCaducidad BETWEEN :fechaInicio AND :fechaFin AND i.estado = 'activo' ORDER BY i.fechaCaducidad ASC")
     List<Insumo> findInsumosProximosAVencer(
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +30,9 @@ public interface LoteRepository extends JpaRepository<Lote, Long> {
     // Buscar lotes activos de un insumo
     List<Lote> findByInsumoIdAndEstado(Long insumoId, String estado);
 
+    // Buscar lotes por lista de IDs y estado
+    List<Lote> findByIdInAndEstado(Collection<Long> ids, String estado);
+
     // Buscar lotes por proveedor
     List<Lote> findByProveedor(String proveedor);
 
@@ -43,6 +47,17 @@ public interface LoteRepository extends JpaRepository<Lote, Long> {
             @Param("fechaFin") LocalDate fechaFin
     );
 
+    // Estado de los lotes activos para la instantánea en memoria
+    // Devuelve filas [id, numeroLote, fechaCaducidad, cantidadActual, insumoId, estado]
+    @Query("SELECT l.id, l.numeroLote, l.fechaCaducidad, l.cantidadActual, l.insumo.id, l.estado " +
+           "FROM Lote l WHERE l.estado = 'activo'")
+    List<Object[]> findEstadoActivos();
+
+    // Igual que la anterior para los lotes indicados, en cualquier estado (refresco incremental)
+    @Query("SELECT l.id, l.numeroLote, l.fechaCaducidad, l.cantidadActual, l.insumo.id, l.estado " +
+           "FROM Lote l WHERE l.id IN :ids")
+    List<Object[]> findEstadoPorIds(@Param("ids") Collection<Long> ids);
+
     // Buscar lotes de un insumo próximos a vencer
     @Query("SELECT l FROM Lote l WHERE l.insumo.id = :insumoId AND l.fechaCaducidad BETWEEN :fechaInicio AND :fechaFin AND l.estado = 'activo' ORDER BY l.fechaCaducidad ASC")
     List<Lote> findLotesPorInsumoProximosAVencer(
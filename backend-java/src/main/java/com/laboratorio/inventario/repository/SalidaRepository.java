@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -55,6 +56,26 @@ public interface SalidaRepository extends JpaRepository<Salida, Long> {
             @Param("fechaFin") LocalDate fechaFin
     );
 
+    // Stock actual y total de salidas en un rango de fechas para todos los insumos activos (una sola consulta)
+    // Devuelve filas [insumoId, cantidadActual, totalSalidas]; los insumos sin salidas tienen total 0
+    @Query("SELECT i.id, i.cantidadActual, COALESCE(SUM(s.cantidad), 0) FROM Insumo i " +
+           "LEFT JOIN Salida s ON s.insumo = i AND s.fechaSalida BETWEEN :fechaInicio AND :fechaFin " +
+           "WHERE i.estado = 'activo' GROUP BY i.id, i.cantidadActual")
+    List<Object[]> calcularStockYSalidasInsumosActivos(
+            @Param("fechaInicio") LocalDate fechaInicio,
+            @Param("fechaFin") LocalDate fechaFin
+    );
+
+    // Igual que la anterior, limitado a los insumos indicados
+    @Query("SELECT i.id, i.cantidadActual, COALESCE(SUM(s.cantidad), 0) FROM Insumo i " +
+           "LEFT JOIN Salida s ON s.insumo = i AND s.fechaSalida BETWEEN :fechaInicio AND :fechaFin " +
+           "WHERE i.id IN :ids AND i.estado = 'activo' GROUP BY i.id, i.cantidadActual")
+    List<Object[]> calcularStockYSalidasInsumos(
+            @Param("ids") Collection<Long> ids,
+            @Param("fechaInicio") LocalDate fechaInicio,
+            @Param("fechaFin") LocalDate fechaFin
+    );
+
     // Obtener salidas ordenadas por fecha descendente
     List<Salida> findAllByOrderByFechaSalidaDesc();
 
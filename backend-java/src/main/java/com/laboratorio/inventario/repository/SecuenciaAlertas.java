@@ -0,0 +1,71 @@
+package com.laboratorio.inventario.repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Generador de IDs de alertas por bloques
+ * 
+ * Usa la misma tabla y fila que el @TableGenerator de Alerta ("siguiente" = próximo ID libre).
+ * Las inserciones JDBC por lotes y un persist de Hibernate solo comparten la fila sin pisarse
+ * porque application.properties fija hibernate.id.generator.stored_last_used=false; con el
+ * valor por defecto de Hibernate 6, "siguiente" guardaría el último ID usado y se repetiría.
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class SecuenciaAlertas {
+
+    private static final String NOMBRE_SECUENCIA = "alertas";
+
+    // Crea la fila si falta y la adelanta por encima de los IDs ya existentes (antes eran AUTO_INCREMENT)
+    private static final String SQL_SINCRONIZAR =
+            "INSERT INTO alertas_secuencia (nombre, siguiente) " +
+            "SELECT s.nombre, s.siguiente FROM (SELECT ? AS nombre, COALESCE(MAX(id), 0) + 1 AS siguiente FROM alertas) s " +
+            "ON DUPLICATE KEY UPDATE siguiente = GREATEST(alertas_secuencia.siguiente, s.siguiente)";
+
+    // LAST_INSERT_ID(expr) deja el nuevo valor en la sesión: reserva atómica sin SELECT ... FOR UPDATE
+    private static final String SQL_RESERVAR =
+            "UPDATE alertas_secuencia SET siguiente = LAST_INSERT_ID(siguiente + ?) WHERE nombre = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Garantiza que Hibernate ya creó la tabla de la secuencia (ddl-auto) antes de sincronizarla
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Transacción propia: el bloqueo de la fila dura solo la reserva, no el bloque de alertas
+    private TransactionTemplate transaccionPropia;
+
+    @PostConstruct
+    void inicializar() {
+        transaccionPropia = new TransactionTemplate(transactionManager);
+        transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaccionPropia.executeWithoutResult(status -> jdbcTemplate.update(SQL_SINCRONIZAR, NOMBRE_SECUENCIA));
+    }
+
+    /**
+     * Reserva un bloque de IDs consecutivos
+     * 
+     * @param cantidad Número de IDs a reservar
+     * @return Primer ID del bloque; el bloque es [primero, primero + cantidad)
+     */
+    public long reservar(int cantidad) {
+        Long siguiente = transaccionPropia.execute(status -> {
+            jdbcTemplate.update(SQL_RESERVAR, cantidad, NOMBRE_SECUENCIA);
+            return jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+        });
+        return siguiente - cantidad;
+    }
+}
@@ -0,0 +1,259 @@
+package com.laboratorio.inventario.scheduler;
+
+import com.laboratorio.inventario.entity.Alerta;
+import com.laboratorio.inventario.enums.PrioridadAlerta;
+import com.laboratorio.inventario.repository.AlertaRepository;
+import com.laboratorio.inventario.service.AlertaService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Escalado de alertas urgentes (CRITICA/ALTA) que siguen sin leerse
+ *
+ * Cada alerta pendiente tiene un temporizador en una rueda jerárquica en memoria que vence
+ * cuando le toca el siguiente paso configurado (volver a notificar, subir la prioridad o
+ * reasignarla a otro usuario). No se consulta la base de datos en cada tick: solo al vencer
+ * un temporizador, para comprobar que la alerta sigue sin leer.
+ *
+ * La rueda se reconstruye al arrancar a partir de las alertas urgentes no leídas; el número de
+ * pasos ya aplicados se guarda en la alerta (nivelEscalado).
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class EscaladoAlertas {
+
+    public enum Accion {
+        RENOTIFICAR,
+        ELEVAR_PRIORIDAD,
+        REASIGNAR
+    }
+
+    /**
+     * Paso de escalado: acción a aplicar cuando la alerta lleva "minutos" sin leerse desde su creación
+     */
+    public record Paso(Accion accion, long minutos) {
+    }
+
+    @Autowired
+    private AlertaRepository alertaRepository;
+
+    @Autowired
+    @Lazy  // AlertaServiceImpl también depende de este componente
+    private AlertaService alertaService;
+
+    // Resolución de la rueda (ms)
+    @Value("${alertas.escalado.tick-ms:1000}")
+    private long tickMs;
+
+    // Pasos "ACCION:minutos" separados por comas, en orden; vacío desactiva el escalado
+    @Value("${alertas.escalado.pasos:}")
+    private String pasosConfigurados;
+
+    // Usuario al que se reasignan las alertas en el paso REASIGNAR
+    @Value("${alertas.escalado.reasignar-a:}")
+    private String usuarioReasignacion;
+
+    // Retardo del primer reintento de un paso que falló; se duplica en cada fallo hasta el máximo
+    @Value("${alertas.escalado.reintento-ms:5000}")
+    private long reintentoMs;
+
+    @Value("${alertas.escalado.reintento-max-ms:300000}")
+    private long reintentoMaxMs;
+
+    private final List<Paso> pasos = new ArrayList<>();
+
+    private RuedaTemporizadores<Long> rueda;
+
+    // Temporizador vigente de cada alerta (para cancelarlo o sustituirlo)
+    private final Map<Long, RuedaTemporizadores.Temporizador<Long>> temporizadores = new ConcurrentHashMap<>();
+
+    // Fallos consecutivos del paso pendiente de cada alerta
+    private final Map<Long, Integer> fallos = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void inicializar() {
+        for (String definicion : pasosConfigurados.split(",")) {
+            if (definicion.isBlank()) {
+                continue;
+            }
+            String[] partes = definicion.trim().split(":");
+            if (partes.length != 2) {
+                throw new IllegalStateException("Paso de escalado no válido (se espera ACCION:minutos): " + definicion);
+            }
+            Paso paso = new Paso(Accion.valueOf(partes[0].trim()), Long.parseLong(partes[1].trim()));
+            if (!pasos.isEmpty() && paso.minutos() < pasos.get(pasos.size() - 1).minutos()) {
+                throw new IllegalStateException("Los pasos de escalado deben estar en orden de minutos: " + pasosConfigurados);
+            }
+            pasos.add(paso);
+        }
+
+        if (pasos.stream().anyMatch(paso -> paso.accion() == Accion.REASIGNAR) && usuarioReasignacion.isBlank()) {
+            throw new IllegalStateException("El paso REASIGNAR requiere alertas.escalado.reasignar-a");
+        }
+
+        rueda = new RuedaTemporizadores<>(tickMs, System.currentTimeMillis());
+    }
+
+    /**
+     * Programa todas las alertas urgentes no leídas con pasos pendientes
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        if (pasos.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> pendientes = alertaRepository.findPendientesEscalado();
+        for (Object[] fila : pendientes) {
+            programarAhora(((Number) fila[0]).longValue(), (PrioridadAlerta) fila[1],
+                    (LocalDateTime) fila[2], fila[3] != null ? ((Number) fila[3]).intValue() : 0);
+        }
+
+        System.out.println("⏫ Escalado de alertas: " + temporizadores.size() + " alertas programadas");
+    }
+
+    /**
+     * Programa el siguiente paso de la alerta cuando se confirme la transacción en curso
+     */
+    public void programar(Alerta alerta) {
+        if (pasos.isEmpty() || !alerta.esUrgente() || Boolean.TRUE.equals(alerta.getLeida())) {
+            return;
+        }
+        Long id = alerta.getId();
+        PrioridadAlerta prioridad = alerta.getPrioridad();
+        LocalDateTime fechaCreacion = alerta.getFechaCreacion();
+        int nivel = alerta.getNivelEscalado() != null ? alerta.getNivelEscalado() : 0;
+
+        despuesDeConfirmar(() -> programarAhora(id, prioridad, fechaCreacion, nivel));
+    }
+
+    /**
+     * Cancela el escalado de las alertas (leídas o eliminadas)
+     */
+    public void cancelar(Collection<Long> alertaIds) {
+        for (Long id : alertaIds) {
+            RuedaTemporizadores.Temporizador<Long> temporizador = temporizadores.remove(id);
+            if (temporizador != null) {
+                temporizador.cancelar();
+            }
+            fallos.remove(id);
+        }
+    }
+
+    /**
+     * Vuelve a programar el paso de una alerta cuyo escalado falló, con un retardo que se
+     * duplica en cada fallo consecutivo (reintento-ms, 2x, 4x... hasta reintento-max-ms)
+     */
+    public void reintentar(Long alertaId) {
+        int fallosConsecutivos = fallos.merge(alertaId, 1, Integer::sum);
+        long retardoMs = Math.min(reintentoMs << Math.min(fallosConsecutivos - 1, 20), reintentoMaxMs);
+
+        RuedaTemporizadores.Temporizador<Long> anterior =
+                temporizadores.put(alertaId, rueda.programar(alertaId, System.currentTimeMillis() + retardoMs));
+        if (anterior != null) {
+            anterior.cancelar();
+        }
+    }
+
+    /**
+     * Avanza la rueda y aplica los pasos vencidos
+     */
+    @Scheduled(fixedDelayString = "${alertas.escalado.tick-ms:1000}")
+    public void avanzar() {
+        List<Long> vencidas = new ArrayList<>();
+        rueda.avanzar(System.currentTimeMillis(), vencidas::add);
+
+        if (vencidas.isEmpty()) {
+            return;
+        }
+        vencidas.forEach(temporizadores::remove);
+
+        try {
+            // Cada alerta se escala en su propia transacción; las que fallan se reprograman solas
+            int escaladas = alertaService.escalarAlertas(vencidas).size();
+            if (escaladas > 0) {
+                System.out.println("⏫ Alertas escaladas: " + escaladas);
+            }
+        } catch (Exception e) {
+            // Falló la lectura común del lote: se reintentan todas
+            System.err.println("❌ Error en escalado de alertas: " + e.getMessage());
+            e.printStackTrace();
+            vencidas.forEach(this::reintentar);
+        }
+
+        // Las que no se reprogramaron (leídas o sin más pasos) ya no necesitan su contador de fallos
+        for (Long id : vencidas) {
+            if (!temporizadores.containsKey(id)) {
+                fallos.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Paso que corresponde aplicar a una alerta con "nivel" pasos ya aplicados; null si no quedan
+     */
+    public Paso getPaso(int nivel) {
+        return nivel < pasos.size() ? pasos.get(nivel) : null;
+    }
+
+    public String getUsuarioReasignacion() {
+        return usuarioReasignacion.trim();
+    }
+
+    public int getTemporizadoresPendientes() {
+        return temporizadores.size();
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private void programarAhora(Long alertaId, PrioridadAlerta prioridad, LocalDateTime fechaCreacion, int nivel) {
+        Paso paso = getPaso(nivel);
+        if (paso == null || prioridad == null || !prioridad.esUrgente()) {
+            return;
+        }
+
+        long vencimientoMs = fechaCreacion.plusMinutes(paso.minutos())
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        RuedaTemporizadores.Temporizador<Long> anterior =
+                temporizadores.put(alertaId, rueda.programar(alertaId, vencimientoMs));
+        if (anterior != null) {
+            anterior.cancelar();
+        }
+        // Paso aplicado: el siguiente empieza sin fallos
+        fallos.remove(alertaId);
+    }
+
+    private void despuesDeConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
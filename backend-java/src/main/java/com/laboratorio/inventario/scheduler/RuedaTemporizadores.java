@@ -0,0 +1,156 @@
+package com.laboratorio.inventario.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Rueda de temporizadores jerárquica (en memoria)
+ *
+ * Cuatro niveles de 64 casillas: el nivel 0 avanza una casilla por tick y cada nivel superior
+ * cubre 64 veces el alcance del anterior. Cuando un nivel da la vuelta, la casilla siguiente
+ * del nivel superior se redistribuye hacia abajo. Programar y cancelar son O(1) y cada tick solo
+ * toca la casilla actual (más una cascada amortizada), sin importar cuántos temporizadores haya.
+ *
+ * Con tick de 1 s el alcance directo es de 64^4 s (unos 194 días); los vencimientos más lejanos
+ * se reprograman en cada cascada del último nivel.
+ *
+ * @param <T> Valor asociado a cada temporizador
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+public class RuedaTemporizadores<T> {
+
+    private static final int BITS_NIVEL = 6;
+    private static final int CASILLAS = 1 << BITS_NIVEL;
+    private static final int MASCARA = CASILLAS - 1;
+    private static final int NIVELES = 4;
+    private static final long ALCANCE = 1L << (BITS_NIVEL * NIVELES);
+
+    /**
+     * Temporizador programado; cancelar() lo descarta sin recorrer la rueda
+     */
+    public static final class Temporizador<T> {
+        private final T valor;
+        private final long tickVencimiento;
+        private volatile boolean cancelado;
+
+        private Temporizador(T valor, long tickVencimiento) {
+            this.valor = valor;
+            this.tickVencimiento = tickVencimiento;
+        }
+
+        public T getValor() {
+            return valor;
+        }
+
+        public void cancelar() {
+            cancelado = true;
+        }
+    }
+
+    private final long tickMs;
+    private final List<List<ArrayDeque<Temporizador<T>>>> niveles = new ArrayList<>();
+    private long tickActual;
+    private int pendientes;
+
+    /**
+     * @param tickMs Resolución de la rueda en milisegundos
+     * @param ahoraMs Instante inicial (System.currentTimeMillis())
+     */
+    public RuedaTemporizadores(long tickMs, long ahoraMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("El tick de la rueda debe ser positivo");
+        }
+        this.tickMs = tickMs;
+        this.tickActual = ahoraMs / tickMs;
+        for (int nivel = 0; nivel < NIVELES; nivel++) {
+            List<ArrayDeque<Temporizador<T>>> casillas = new ArrayList<>(CASILLAS);
+            for (int i = 0; i < CASILLAS; i++) {
+                casillas.add(new ArrayDeque<>());
+            }
+            niveles.add(casillas);
+        }
+    }
+
+    /**
+     * Programa un temporizador; si el instante ya pasó, vence en el siguiente tick
+     */
+    public synchronized Temporizador<T> programar(T valor, long vencimientoMs) {
+        Temporizador<T> temporizador = new Temporizador<>(valor, vencimientoMs / tickMs);
+        // La casilla del tick actual ya se recorrió: lo vencido sale en el siguiente
+        colocar(temporizador, tickActual + 1);
+        pendientes++;
+        return temporizador;
+    }
+
+    /**
+     * Avanza la rueda hasta el instante indicado y entrega los temporizadores vencidos
+     * (los cancelados se descartan sin entregarse)
+     */
+    public synchronized void avanzar(long ahoraMs, Consumer<T> alVencer) {
+        long tickObjetivo = ahoraMs / tickMs;
+        while (tickActual < tickObjetivo) {
+            tickActual++;
+
+            // Al dar la vuelta un nivel, se baja la casilla correspondiente del nivel superior
+            for (int nivel = 1; nivel < NIVELES && indice(tickActual, nivel - 1) == 0; nivel++) {
+                cascada(nivel);
+            }
+
+            ArrayDeque<Temporizador<T>> casilla = niveles.get(0).get(indice(tickActual, 0));
+            Temporizador<T> temporizador;
+            while ((temporizador = casilla.poll()) != null) {
+                pendientes--;
+                if (!temporizador.cancelado) {
+                    alVencer.accept(temporizador.valor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Temporizadores en la rueda (incluye cancelados aún no recorridos)
+     */
+    public synchronized int getPendientes() {
+        return pendientes;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private void colocar(Temporizador<T> temporizador, long tickMinimo) {
+        long vencimiento = Math.max(temporizador.tickVencimiento, tickMinimo);
+        long delta = vencimiento - tickActual;
+        if (delta >= ALCANCE) {
+            // Fuera de alcance: se aparca en la casilla más lejana y se recoloca en su cascada
+            vencimiento = tickActual + ALCANCE - 1;
+            delta = ALCANCE - 1;
+        }
+
+        int nivel = 0;
+        while (nivel < NIVELES - 1 && delta >= (1L << (BITS_NIVEL * (nivel + 1)))) {
+            nivel++;
+        }
+        niveles.get(nivel).get(indice(vencimiento, nivel)).add(temporizador);
+    }
+
+    private void cascada(int nivel) {
+        ArrayDeque<Temporizador<T>> casilla = niveles.get(nivel).get(indice(tickActual, nivel));
+        Temporizador<T> temporizador;
+        while ((temporizador = casilla.poll()) != null) {
+            if (temporizador.cancelado) {
+                pendientes--;
+            } else {
+                // La cascada ocurre antes de recorrer la casilla del tick actual
+                colocar(temporizador, tickActual);
+            }
+        }
+    }
+
+    private static int indice(long tick, int nivel) {
+        return (int) ((tick >>> (BITS_NIVEL * nivel)) & MASCARA);
+    }
+}
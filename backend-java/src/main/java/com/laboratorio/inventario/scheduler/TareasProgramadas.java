@@ -1,7 +1,10 @@
 package com.laboratorio.inventario.scheduler;
 
 import com.laboratorio.inventario.dto.AlertaDTO;
+import com.laboratorio.inventario.dto.ResultadoLimpiezaDTO;
+import com.laboratorio.inventario.event.RegistroCambiosInventario;
 import com.laboratorio.inventario.service.AlertaService;
+import com.laboratorio.inventario.service.InventarioEnMemoria;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -9,6 +12,7 @@ import org.springframework.stereotype.Component;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Tareas programadas para verificación automática de alertas
@@ -25,10 +29,54 @@ public class TareasProgramadas {
     @Autowired
     private AlertaService alertaService;
 
+    @Autowired
+    private RegistroCambiosInventario registroCambios;
+
+    @Autowired
+    private InventarioEnMemoria inventarioEnMemoria;
+
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
 
     /**
-     * Verifica y genera alertas cada 1 minuto (60000 ms)
+     * Re-evalúa solo los insumos y lotes modificados desde el ciclo anterior y los
+     * que hoy cruzan un umbral de las reglas (por defecto cada 10 segundos)
+     * 
+     * Los servicios publican un InventarioModificadoEvent en cada escritura, y el
+     * índice de próxima evaluación indica qué filas pueden cambiar con el paso del
+     * tiempo (caducidad o agotamiento previsto). Si no hay ninguna de las dos cosas,
+     * el ciclo termina sin consultar la base de datos ni recorrer el inventario.
+     */
+    @Scheduled(fixedDelayString = "${alertas.incremental.intervalo-ms:10000}")
+    public void verificarCambiosPendientes() {
+        InventarioEnMemoria.EvaluacionesVencidas vencidas = inventarioEnMemoria.extraerEvaluacionesVencidas();
+        if (!registroCambios.hayCambiosPendientes() && vencidas.isEmpty()) {
+            return;
+        }
+
+        Set<Long> insumoIds = registroCambios.drenarInsumos();
+        Set<Long> loteIds = registroCambios.drenarLotes();
+        int insumosModificados = insumoIds.size();
+        int lotesModificados = loteIds.size();
+        insumoIds.addAll(vencidas.insumoIds());
+        loteIds.addAll(vencidas.loteIds());
+
+        try {
+            List<AlertaDTO> alertasGeneradas = alertaService.verificarAlertasIncrementales(insumoIds, loteIds);
+
+            System.out.println(String.format("⚡ Verificación incremental - %d insumos, %d lotes modificados, %d insumos, %d lotes por umbral, %d alertas nuevas",
+                insumosModificados, lotesModificados, vencidas.insumoIds().size(), vencidas.loteIds().size(), alertasGeneradas.size()));
+        } catch (Exception e) {
+            // Los modificados y los que cruzaban un umbral ya salieron del registro y del índice:
+            // se devuelven al registro para que el siguiente ciclo los vuelva a evaluar
+            registroCambios.devolver(insumoIds, loteIds);
+            System.err.println("❌ Error en verificación incremental (" + insumoIds.size() + " insumos, "
+                    + loteIds.size() + " lotes se reintentarán): " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reconciliación completa de alertas (por defecto cada 15 minutos)
      * 
      * Esta tarea ejecuta todas las verificaciones:
      * - Stock bajo
@@ -36,14 +84,17 @@ public class TareasProgramadas {
      * - Lotes vencidos
      * - Predicción de agotamiento
      * 
+     * Recarga la instantánea del inventario y cubre lo que el ciclo incremental
+     * no ve (el desplazamiento de la ventana de consumo promedio, los eventos
+     * perdidos y la repetición diaria de las alertas que siguen vigentes).
      * Las alertas detectadas se crean automáticamente y se envían por WebSocket
      */
-    @Scheduled(fixedRate = 10000) // Cada 1 minuto
+    @Scheduled(fixedRateString = "${alertas.reconciliacion.intervalo-ms:900000}")
     public void verificarAlertasAutomaticamente() {
         String horaEjecucion = LocalDateTime.now().format(formatter);
         
         System.out.println("\n" + "=".repeat(80));
-        System.out.println("⏰ TAREA PROGRAMADA - Verificación de Alertas");
+        System.out.println("⏰ TAREA PROGRAMADA - Reconciliación de Alertas");
         System.out.println("📅 Fecha/Hora: " + horaEjecucion);
         System.out.println("=".repeat(80));
 
@@ -120,8 +171,19 @@ public class TareasProgramadas {
         System.out.println("=".repeat(80));
 
         try {
-            alertaService.limpiarAlertasAntiguas(30); // Eliminar alertas de más de 30 días
-            System.out.println("✅ Limpieza completada - Alertas antiguas eliminadas");
+            ResultadoLimpiezaDTO resultado = alertaService.limpiarAlertasAntiguas(30); // Eliminar alertas de más de 30 días
+            System.out.println(String.format("✅ Limpieza %s - %d alertas eliminadas (%d archivadas) en %d bloques, %d ms",
+                resultado.isCompletada() ? "completada" : "interrumpida",
+                resultado.getFilasEliminadas(),
+                resultado.getFilasArchivadas(),
+                resultado.getBloques(),
+                resultado.getDuracionMs()
+            ));
+            System.out.println(String.format("💾 Espacio liberado (estimado): %d KB en alertas, %d KB en tablas de archivo %s",
+                resultado.getBytesLiberadosEstimados() / 1024,
+                resultado.getBytesArchivoEliminados() / 1024,
+                resultado.getTablasArchivoEliminadas()
+            ));
         } catch (Exception e) {
             System.err.println("❌ Error en limpieza automática: " + e.getMessage());
             e.printStackTrace();
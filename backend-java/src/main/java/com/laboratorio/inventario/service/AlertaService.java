@@ -1,28 +1,55 @@
 package com.laboratorio.inventario.service;
 
 import com.laboratorio.inventario.dto.AlertaDTO;
+import com.laboratorio.inventario.dto.PaginaAlertasDTO;
+import com.laboratorio.inventario.dto.ReanudacionAlertasDTO;
+import com.laboratorio.inventario.dto.ResultadoLimpiezaDTO;
+import com.laboratorio.inventario.dto.SolicitudReanudacionDTO;
 //import com.laboratorio.inventario.entity.Alerta;
 import com.laboratorio.inventario.entity.Insumo;
 import com.laboratorio.inventario.entity.Lote;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface AlertaService {
     
-    // CRUD Básico
-    List<AlertaDTO> listarTodas();
+    // CRUD Básico (listados paginados por cursor sobre fechaCreacion, id)
+    PaginaAlertasDTO listarTodas(String cursor, int tamano);
     List<AlertaDTO> listarNoLeidas();
+    PaginaAlertasDTO listarNoLeidas(String cursor, int tamano);
     Optional<AlertaDTO> obtenerPorId(Long id);
     AlertaDTO marcarComoLeida(Long id);
     void eliminar(Long id);
     
+    // Operaciones masivas (una sola sentencia UPDATE/DELETE y un solo mensaje WebSocket)
+    int marcarComoLeidas(List<Long> ids);
+    int marcarComoLeidasPorFiltro(String tipo, String prioridad, LocalDateTime antesDe);
+    int eliminarVarias(List<Long> ids);
+    int eliminarPorFiltro(String tipo, String prioridad, LocalDateTime antesDe);
+    
+    // Bandeja por usuario (una entrada por destinatario, con su propio estado de lectura)
+    PaginaAlertasDTO listarBandeja(String usuario, String cursor, int tamano);
+    PaginaAlertasDTO listarNoLeidasBandeja(String usuario, String cursor, int tamano);
+    Long contarNoLeidasBandeja(String usuario);
+    
+    // Reanudación de un cliente WebSocket reconectado (búfer de repetición o base de datos)
+    ReanudacionAlertasDTO reanudarSincronizacion(String usuario, SolicitudReanudacionDTO solicitud);
+    boolean marcarComoLeidaEnBandeja(String usuario, Long alertaId);
+    int marcarTodasComoLeidasEnBandeja(String usuario);
+    
+    // Escalado de alertas urgentes no leídas (lo invoca la rueda de temporizadores)
+    List<AlertaDTO> escalarAlertas(Collection<Long> alertaIds);
+    
     // Crear alertas específicas
     AlertaDTO crearAlertaStockBajo(Insumo insumo);
     AlertaDTO crearAlertaCaducidad(Lote lote, int diasRestantes);
     AlertaDTO crearAlertaVencido(Lote lote);
     AlertaDTO crearAlertaAgotamientoProximo(Insumo insumo, int diasEstimados);
-    AlertaDTO crearAlertaPersonalizada(String tipo, String prioridad, String titulo, String mensaje, Long insumoId, Long loteId);
+    AlertaDTO crearAlertaPersonalizada(String tipo, String prioridad, String titulo, String mensaje, Long insumoId, Long loteId, String usuarioDestinatario);
     
     // Verificar y generar alertas automáticamente
     List<AlertaDTO> verificarYGenerarAlertas();
@@ -31,17 +58,23 @@ public interface AlertaService {
     List<AlertaDTO> verificarAlertasVencidos();
     List<AlertaDTO> verificarAlertasAgotamiento();
     
+    // Verificar solo los insumos y lotes modificados (ciclo incremental)
+    List<AlertaDTO> verificarAlertasIncrementales(Set<Long> insumoIds, Set<Long> loteIds);
+    
     // Búsquedas
-    List<AlertaDTO> buscarPorTipo(String tipo);
-    List<AlertaDTO> buscarPorPrioridad(String prioridad);
-    List<AlertaDTO> buscarPorInsumo(Long insumoId);
+    PaginaAlertasDTO buscarPorTipo(String tipo, String cursor, int tamano);
+    PaginaAlertasDTO buscarPorPrioridad(String prioridad, String cursor, int tamano);
+    PaginaAlertasDTO buscarPorInsumo(Long insumoId, String cursor, int tamano);
     List<AlertaDTO> buscarAlertasUrgentes();
     List<AlertaDTO> buscarAlertasDeHoy();
     
     // Estadísticas
     Long contarNoLeidas();
     Long contarPorPrioridad(String prioridad);
+    Long contarPorTipo(String tipo);
+    Long contarUrgentes();
+    Long contarDeHoy();
     
     // Limpieza
-    void limpiarAlertasAntiguas(int diasAntiguedad);
+    ResultadoLimpiezaDTO limpiarAlertasAntiguas(int diasAntiguedad);
 }
\ No newline at end of file
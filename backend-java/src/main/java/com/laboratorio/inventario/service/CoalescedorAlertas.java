@@ -0,0 +1,163 @@
+package com.laboratorio.inventario.service;
+
+import com.laboratorio.inventario.entity.Alerta;
+import com.laboratorio.inventario.enums.TipoAlerta;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Etapa de agrupación de alertas (tormentas de alertas)
+ * 
+ * Cuenta por tipo las alertas enviadas individualmente en una ventana deslizante.
+ * Al superar el umbral, el resto de alertas de ese tipo se agrupan en un resumen
+ * INVENTARIO_CRITICO en lugar de crear una fila y un mensaje WebSocket por elemento.
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class CoalescedorAlertas {
+
+    @Value("${alertas.coalescencia.umbral:20}")
+    private int umbral;
+
+    @Value("${alertas.coalescencia.ventana-ms:60000}")
+    private long ventanaMs;
+
+    // Instantes (ms) de las alertas enviadas individualmente, por tipo
+    private final Map<TipoAlerta, Deque<Long>> enviadasPorTipo = new EnumMap<>(TipoAlerta.class);
+
+    // Elementos notificados hoy solo dentro de un resumen (no tienen fila propia)
+    private final Set<ElementoAgrupado> agrupadosHoy = new HashSet<>();
+    private LocalDate diaAgrupados = LocalDate.now();
+
+    /**
+     * Elemento de una alerta agrupada: identifica el insumo/lote afectado
+     */
+    public record ElementoAgrupado(TipoAlerta tipo, Long insumoId, Long loteId) {
+    }
+
+    /**
+     * Resultado de repartir alertas: las que se envían tal cual y las que van a un resumen, por tipo
+     */
+    public record Reparto(List<Alerta> individuales, Map<TipoAlerta, List<Alerta>> agrupadasPorTipo) {
+    }
+
+    /**
+     * Reparte las alertas entre envío individual y resumen según la ventana de cada tipo.
+     * Las alertas sin clave de duplicados (personalizadas, resúmenes) nunca se agrupan.
+     * No ocupa la ventana: solo cuentan las filas que luego se insertan (registrarEnviadas).
+     */
+    public synchronized Reparto repartir(List<Alerta> alertas) {
+        long ahora = System.currentTimeMillis();
+        List<Alerta> individuales = new ArrayList<>();
+        Map<TipoAlerta, List<Alerta>> agrupadasPorTipo = new LinkedHashMap<>();
+        Map<TipoAlerta, Integer> huecosPorTipo = new EnumMap<>(TipoAlerta.class);
+
+        for (Alerta alerta : alertas) {
+            if (alerta.getClaveDedup() == null) {
+                individuales.add(alerta);
+                continue;
+            }
+
+            int huecos = huecosPorTipo.computeIfAbsent(alerta.getTipo(),
+                    tipo -> Math.max(0, umbral - enviadasEnVentana(tipo, ahora).size()));
+            if (huecos > 0) {
+                huecosPorTipo.put(alerta.getTipo(), huecos - 1);
+                individuales.add(alerta);
+            } else {
+                agrupadasPorTipo.computeIfAbsent(alerta.getTipo(), tipo -> new ArrayList<>()).add(alerta);
+            }
+        }
+
+        return new Reparto(individuales, agrupadasPorTipo);
+    }
+
+    /**
+     * Cuenta en la ventana de su tipo las alertas realmente insertadas
+     * (las descartadas como duplicado por la base de datos no ocupan ventana)
+     */
+    public synchronized void registrarEnviadas(List<Alerta> insertadas) {
+        long ahora = System.currentTimeMillis();
+        for (Alerta alerta : insertadas) {
+            if (alerta.getClaveDedup() != null) {
+                enviadasEnVentana(alerta.getTipo(), ahora).addLast(ahora);
+            }
+        }
+    }
+
+    /**
+     * Registra los elementos incluidos en un resumen para no volver a notificarlos hoy.
+     * Se aplica al confirmarse la transacción: si el resumen no llega a guardarse,
+     * los elementos se vuelven a notificar en el siguiente ciclo.
+     */
+    public void registrarAgrupadas(List<Alerta> agrupadas) {
+        List<ElementoAgrupado> elementos = new ArrayList<>();
+        for (Alerta alerta : agrupadas) {
+            elementos.add(new ElementoAgrupado(
+                    alerta.getTipo(),
+                    alerta.getInsumo() != null ? alerta.getInsumo().getId() : null,
+                    alerta.getLote() != null ? alerta.getLote().getId() : null));
+        }
+
+        Runnable registrar = () -> {
+            synchronized (this) {
+                renovarDia();
+                agrupadosHoy.addAll(elementos);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registrar.run();
+                }
+            });
+        } else {
+            registrar.run();
+        }
+    }
+
+    /**
+     * Elementos ya notificados hoy dentro de un resumen
+     * (Se suman a las claves de duplicados del ciclo de verificación)
+     */
+    public synchronized List<ElementoAgrupado> getAgrupadosHoy() {
+        renovarDia();
+        return new ArrayList<>(agrupadosHoy);
+    }
+
+    public long getVentanaMs() {
+        return ventanaMs;
+    }
+
+    // Instantes de las enviadas del tipo dentro de la ventana (descarta las que ya salieron)
+    private Deque<Long> enviadasEnVentana(TipoAlerta tipo, long ahora) {
+        Deque<Long> enviadas = enviadasPorTipo.computeIfAbsent(tipo, clave -> new ArrayDeque<>());
+        while (!enviadas.isEmpty() && ahora - enviadas.peekFirst() > ventanaMs) {
+            enviadas.pollFirst();
+        }
+        return enviadas;
+    }
+
+    private void renovarDia() {
+        LocalDate hoy = LocalDate.now();
+        if (!hoy.equals(diaAgrupados)) {
+            agrupadosHoy.clear();
+            diaAgrupados = hoy;
+        }
+    }
+}
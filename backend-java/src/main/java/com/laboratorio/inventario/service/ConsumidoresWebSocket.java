@@ -0,0 +1,285 @@
+package com.laboratorio.inventario.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Protección frente a clientes WebSocket lentos
+ *
+ * Mide cada sesión: tramas aceptadas en el canal de salida que aún no se han escrito
+ * en el socket y duración del envío en curso. Un cliente se considera lento si supera
+ * "max-pendientes" tramas o lleva más de "umbral-ms" escribiendo una sola.
+ *
+ * Política con un cliente lento:
+ * - DESCARTAR: las tramas de alertas (MESSAGE) para esa sesión se descartan hasta que
+ *   se ponga al día. La siguiente trama que recibe lleva la cabecera "tramasPerdidas" y el
+ *   cliente recupera lo perdido con /app/alertas/reanudar desde su posición anterior.
+ * - DESCONECTAR: la sesión se cierra (SESSION_NOT_RELIABLE) en cuanto llega una trama de
+ *   alertas para ella; al reconectarse, el cliente recupera lo perdido con la reanudación.
+ *
+ * Con cualquier política, los límites de tiempo y búfer de envío de WebSocketConfig siguen
+ * cerrando las sesiones que los superen. Un cliente bloqueado ocupa como mucho un hilo del
+ * canal de salida.
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class ConsumidoresWebSocket implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    public enum PoliticaConsumidorLento {
+        DESCARTAR, DESCONECTAR
+    }
+
+    public static final String CABECERA_PERDIDAS = "tramasPerdidas";
+
+    private static final String DESTINO_REANUDACION = "/alertas/reanudar";
+
+    @Value("${websocket.consumidor-lento.politica:DESCARTAR}")
+    private PoliticaConsumidorLento politica;
+
+    // Tramas pendientes de escribir a partir de las cuales la sesión es lenta
+    @Value("${websocket.consumidor-lento.max-pendientes:200}")
+    private int maxPendientes;
+
+    // Duración de la escritura de una trama a partir de la cual la sesión es lenta
+    @Value("${websocket.consumidor-lento.umbral-ms:2000}")
+    private long umbralMs;
+
+    private final Map<String, SesionMedida> sesiones = new ConcurrentHashMap<>();
+
+    private final AtomicLong tramasDescartadas = new AtomicLong();
+    private final AtomicLong sesionesCerradasPorLimite = new AtomicLong();
+    private final AtomicLong sesionesCerradasPorLentitud = new AtomicLong();
+
+    // ==========================================
+    // CANAL DE SALIDA
+    // ==========================================
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SesionMedida sesion = sesiones.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (sesion == null) {
+            return message;
+        }
+
+        if (esDescartable(message) && sesion.esLenta()) {
+            if (politica == PoliticaConsumidorLento.DESCONECTAR) {
+                cerrarPorLentitud(sesion);
+                return null;
+            }
+            sesion.descartadas.incrementAndGet();
+            sesion.perdidasSinAvisar.incrementAndGet();
+            if (tramasDescartadas.incrementAndGet() % 1000 == 1) {
+                System.out.println("⚠️ Cliente WebSocket lento (" + sesion.getId() + "): "
+                        + tramasDescartadas.get() + " tramas descartadas en total");
+            }
+            return null;
+        }
+
+        sesion.pendientes.incrementAndGet();
+
+        int perdidas = SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                ? sesion.perdidasSinAvisar.getAndSet(0) : 0;
+        if (perdidas > 0) {
+            // La trama es propia de esta sesión (el broker crea una por suscriptor)
+            MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+            if (accessor instanceof NativeMessageHeaderAccessor cabeceras) {
+                cabeceras.setNativeHeader(CABECERA_PERDIDAS, String.valueOf(perdidas));
+                return MessageBuilder.createMessage(message.getPayload(), cabeceras.getMessageHeaders());
+            }
+        }
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (sent && ex == null) {
+            return;
+        }
+        // Rechazada por el ejecutor del canal (cola llena): no llegará a escribirse
+        SesionMedida sesion = sesiones.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (sesion != null) {
+            sesion.pendientes.updateAndGet(total -> Math.max(0, total - 1));
+        }
+    }
+
+    // ==========================================
+    // SESIONES
+    // ==========================================
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SesionMedida sesion = new SesionMedida(session);
+                sesiones.put(session.getId(), sesion);
+                super.afterConnectionEstablished(sesion);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                super.handleMessage(medida(session), message);
+            }
+
+            @Override
+            public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+                super.handleTransportError(medida(session), exception);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                SesionMedida sesion = sesiones.remove(session.getId());
+                if (CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus)
+                        && (sesion == null || !sesion.cerrandoPorLentitud.get())) {
+                    // Cerrada por Spring al superar el límite de tiempo o de búfer de envío
+                    sesionesCerradasPorLimite.incrementAndGet();
+                    System.out.println("⚠️ Sesión WebSocket " + session.getId() + " cerrada por cliente lento");
+                }
+                super.afterConnectionClosed(sesion != null ? sesion : session, closeStatus);
+            }
+        };
+    }
+
+    // ==========================================
+    // MÉTRICAS
+    // ==========================================
+
+    public long getTramasDescartadas() {
+        return tramasDescartadas.get();
+    }
+
+    public long getSesionesCerradasPorLimite() {
+        return sesionesCerradasPorLimite.get();
+    }
+
+    public long getSesionesCerradasPorLentitud() {
+        return sesionesCerradasPorLentitud.get();
+    }
+
+    public PoliticaConsumidorLento getPolitica() {
+        return politica;
+    }
+
+    /**
+     * Estado de cada sesión abierta: tramas pendientes, envío en curso, enviadas y descartadas
+     */
+    public Map<String, Map<String, Object>> getMetricasPorSesion() {
+        Map<String, Map<String, Object>> metricas = new LinkedHashMap<>();
+        sesiones.forEach((id, sesion) -> {
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("pendientes", sesion.pendientes.get());
+            datos.put("envioEnCursoMs", sesion.msEnvioEnCurso());
+            datos.put("enviadas", sesion.enviadas.get());
+            datos.put("descartadas", sesion.descartadas.get());
+            datos.put("lenta", sesion.esLenta());
+            metricas.put(id, datos);
+        });
+        return metricas;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    // Tramas de alertas, salvo las respuestas a una reanudación (son las que recuperan lo perdido)
+    private static boolean esDescartable(Message<?> message) {
+        String destino = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        return SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                && (destino == null || !destino.contains(DESTINO_REANUDACION));
+    }
+
+    /**
+     * Cierra la sesión lenta (una sola vez) fuera del hilo que publica, porque el cierre puede
+     * esperar a la escritura bloqueada de ese mismo cliente
+     */
+    private void cerrarPorLentitud(SesionMedida sesion) {
+        if (!sesion.cerrandoPorLentitud.compareAndSet(false, true)) {
+            return;
+        }
+        sesionesCerradasPorLentitud.incrementAndGet();
+        System.out.println("⚠️ Cerrando sesión WebSocket " + sesion.getId() + " por cliente lento ("
+                + sesion.pendientes.get() + " tramas pendientes, envío en curso " + sesion.msEnvioEnCurso() + " ms)");
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                sesion.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                System.err.println("❌ Error cerrando la sesión WebSocket " + sesion.getId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private WebSocketSession medida(WebSocketSession session) {
+        SesionMedida sesion = sesiones.get(session.getId());
+        return sesion != null ? sesion : session;
+    }
+
+    /**
+     * Sesión que mide sus escrituras. Spring la envuelve en un ConcurrentWebSocketSessionDecorator,
+     * así que sendMessage se llama desde un solo hilo a la vez.
+     */
+    private final class SesionMedida extends WebSocketSessionDecorator {
+
+        private final AtomicInteger pendientes = new AtomicInteger();
+        private final AtomicLong enviadas = new AtomicLong();
+        private final AtomicLong descartadas = new AtomicLong();
+        private final AtomicInteger perdidasSinAvisar = new AtomicInteger();
+        private final AtomicBoolean cerrandoPorLentitud = new AtomicBoolean();
+
+        // System.nanoTime() al empezar la escritura en curso; 0 si no hay ninguna
+        private volatile long inicioEnvio;
+
+        SesionMedida(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            inicioEnvio = System.nanoTime() | 1;
+            try {
+                super.sendMessage(message);
+                enviadas.incrementAndGet();
+            } finally {
+                inicioEnvio = 0;
+                // Latidos y tramas que no pasaron por el interceptor no se contaron
+                pendientes.updateAndGet(total -> Math.max(0, total - 1));
+            }
+        }
+
+        long msEnvioEnCurso() {
+            long inicio = inicioEnvio;
+            return inicio == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        }
+
+        boolean esLenta() {
+            return pendientes.get() >= maxPendientes || msEnvioEnCurso() >= umbralMs;
+        }
+    }
+}
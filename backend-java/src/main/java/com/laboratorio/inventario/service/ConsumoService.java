@@ -3,7 +3,9 @@ package com.laboratorio.inventario.service;
 import com.laboratorio.inventario.dto.ConsumoHistoricoDTO;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ConsumoService {
     
@@ -37,6 +39,19 @@ public interface ConsumoService {
      */
     Integer predecirDiasHastaAgotamiento(Long insumoId);
     
+    /**
+     * Predecir los días hasta agotamiento de todos los insumos activos con una sola consulta
+     * @return Mapa insumoId -> días estimados (solo insumos con predicción disponible)
+     */
+    Map<Long, Integer> predecirDiasHastaAgotamientoActivos();
+    
+    /**
+     * Predecir los días hasta agotamiento de un conjunto de insumos con una sola consulta
+     * @param insumoIds IDs de los insumos
+     * @return Mapa insumoId -> días estimados (solo insumos activos con predicción disponible)
+     */
+    Map<Long, Integer> predecirDiasHastaAgotamiento(Collection<Long> insumoIds);
+    
     /**
      * Obtener consumo por rango de fechas
      * @param insumoId ID del insumo
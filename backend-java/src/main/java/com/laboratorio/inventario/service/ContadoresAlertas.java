@@ -0,0 +1,271 @@
+package com.laboratorio.inventario.service;
+
+import com.laboratorio.inventario.entity.Alerta;
+import com.laboratorio.inventario.enums.PrioridadAlerta;
+import com.laboratorio.inventario.enums.TipoAlerta;
+import com.laboratorio.inventario.repository.AlertaDestinatarioRepository;
+import com.laboratorio.inventario.repository.AlertaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de alertas en memoria (insignias y estadísticas sin consultar la base de datos)
+ * 
+ * Se mantienen por (tipo, prioridad, leída), más las no leídas de la bandeja de cada usuario,
+ * y se actualizan al confirmar cada creación, lectura o eliminación. Una consulta GROUP BY
+ * periódica corrige cualquier desviación (operaciones masivas, cambios hechos fuera de la aplicación).
+ * 
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class ContadoresAlertas {
+
+    @Autowired
+    private AlertaRepository alertaRepository;
+
+    @Autowired
+    private AlertaDestinatarioRepository alertaDestinatarioRepository;
+
+    private record Clave(TipoAlerta tipo, PrioridadAlerta prioridad, boolean leida) {
+    }
+
+    private volatile Map<Clave, LongAdder> contadores = new ConcurrentHashMap<>();
+
+    // Alertas creadas hoy (se reinicia al cambiar de día)
+    private final LongAdder creadasHoy = new LongAdder();
+    private volatile LocalDate diaCreadas = LocalDate.now();
+
+    // No leídas de la bandeja de cada usuario
+    private volatile Map<String, LongAdder> noLeidasPorUsuario = new ConcurrentHashMap<>();
+
+    // Cambios aplicados mientras se reconcilia (null fuera de la reconciliación): se repiten sobre
+    // los contadores nuevos, porque la consulta agrupada puede no incluirlos
+    private final Object cerrojoCambios = new Object();
+    private List<Runnable> cambiosDuranteReconciliacion;
+
+    // ==========================================
+    // ACTUALIZACIÓN
+    // ==========================================
+
+    public void registrarCreada(Alerta alerta) {
+        despuesDeConfirmar(() -> {
+            sumar(alerta.getTipo(), alerta.getPrioridad(), Boolean.TRUE.equals(alerta.getLeida()), 1);
+            if (esDeHoy(alerta)) {
+                creadasHoy.increment();
+            }
+        });
+    }
+
+    public void registrarLeida(Alerta alerta) {
+        despuesDeConfirmar(() -> {
+            sumar(alerta.getTipo(), alerta.getPrioridad(), false, -1);
+            sumar(alerta.getTipo(), alerta.getPrioridad(), true, 1);
+        });
+    }
+
+    public void registrarCambioPrioridad(Alerta alerta, PrioridadAlerta anterior) {
+        TipoAlerta tipo = alerta.getTipo();
+        PrioridadAlerta nueva = alerta.getPrioridad();
+        boolean leida = Boolean.TRUE.equals(alerta.getLeida());
+        despuesDeConfirmar(() -> {
+            sumar(tipo, anterior, leida, -1);
+            sumar(tipo, nueva, leida, 1);
+        });
+    }
+
+    public void registrarEliminada(Alerta alerta) {
+        despuesDeConfirmar(() -> {
+            sumar(alerta.getTipo(), alerta.getPrioridad(), Boolean.TRUE.equals(alerta.getLeida()), -1);
+            if (esDeHoy(alerta)) {
+                creadasHoy.decrement();
+            }
+        });
+    }
+
+    public void registrarEnBandeja(String usuario) {
+        despuesDeConfirmar(() -> sumarEnBandeja(usuario, 1));
+    }
+
+    public void registrarLeidasEnBandeja(String usuario, long cantidad) {
+        despuesDeConfirmar(() -> sumarEnBandeja(usuario, -cantidad));
+    }
+
+    // ==========================================
+    // CONSULTAS (O(1), SIN BASE DE DATOS)
+    // ==========================================
+
+    public long contarNoLeidas() {
+        long total = 0;
+        for (Map.Entry<Clave, LongAdder> entrada : contadores.entrySet()) {
+            if (!entrada.getKey().leida()) {
+                total += entrada.getValue().sum();
+            }
+        }
+        return total;
+    }
+
+    public long contarNoLeidasPorPrioridad(PrioridadAlerta prioridad) {
+        long total = 0;
+        for (Map.Entry<Clave, LongAdder> entrada : contadores.entrySet()) {
+            if (!entrada.getKey().leida() && entrada.getKey().prioridad() == prioridad) {
+                total += entrada.getValue().sum();
+            }
+        }
+        return total;
+    }
+
+    public long contarPorTipo(TipoAlerta tipo) {
+        long total = 0;
+        for (Map.Entry<Clave, LongAdder> entrada : contadores.entrySet()) {
+            if (entrada.getKey().tipo() == tipo) {
+                total += entrada.getValue().sum();
+            }
+        }
+        return total;
+    }
+
+    public long contarCreadasHoy() {
+        renovarDia();
+        return creadasHoy.sum();
+    }
+
+    public long contarNoLeidasEnBandeja(String usuario) {
+        LongAdder contador = noLeidasPorUsuario.get(usuario);
+        return contador != null ? contador.sum() : 0;
+    }
+
+    // ==========================================
+    // RECONCILIACIÓN
+    // ==========================================
+
+    /**
+     * Recalcula todos los contadores con una sola consulta agrupada.
+     * Se ejecuta al arrancar y periódicamente; las reconciliaciones van de una en una.
+     */
+    @Scheduled(fixedDelayString = "${alertas.contadores.reconciliacion-ms:300000}")
+    public synchronized void reconciliar() {
+        synchronized (cerrojoCambios) {
+            cambiosDuranteReconciliacion = new ArrayList<>();
+        }
+        try {
+            recalcular();
+        } finally {
+            synchronized (cerrojoCambios) {
+                cambiosDuranteReconciliacion = null;
+            }
+        }
+    }
+
+    private void recalcular() {
+        Map<Clave, LongAdder> nuevos = new ConcurrentHashMap<>();
+        for (Object[] fila : alertaRepository.contarAgrupadoPorTipoPrioridadYLeida()) {
+            LongAdder contador = new LongAdder();
+            contador.add(((Number) fila[3]).longValue());
+            nuevos.put(new Clave((TipoAlerta) fila[0], (PrioridadAlerta) fila[1], Boolean.TRUE.equals(fila[2])), contador);
+        }
+
+        LocalDate hoy = LocalDate.now();
+        long deHoy = alertaRepository.countByFechaCreacionGreaterThanEqual(hoy.atStartOfDay());
+
+        Map<String, LongAdder> nuevosPorUsuario = new ConcurrentHashMap<>();
+        for (Object[] fila : alertaDestinatarioRepository.contarNoLeidasPorUsuario()) {
+            LongAdder contador = new LongAdder();
+            contador.add(((Number) fila[1]).longValue());
+            nuevosPorUsuario.put((String) fila[0], contador);
+        }
+
+        synchronized (cerrojoCambios) {
+            contadores = nuevos;
+            noLeidasPorUsuario = nuevosPorUsuario;
+            synchronized (creadasHoy) {
+                creadasHoy.reset();
+                creadasHoy.add(deHoy);
+                diaCreadas = hoy;
+            }
+            // Los confirmados después de la consulta se habrían perdido en los contadores anteriores
+            cambiosDuranteReconciliacion.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Reconcilia cuando se confirme la transacción en curso (tras operaciones masivas)
+     */
+    public void reconciliarAlConfirmar() {
+        // Fuera de aplicar(): la consulta no debe retener el cerrojo de los cambios
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reconciliar();
+                }
+            });
+        } else {
+            reconciliar();
+        }
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private void sumar(TipoAlerta tipo, PrioridadAlerta prioridad, boolean leida, long delta) {
+        contadores.computeIfAbsent(new Clave(tipo, prioridad, leida), clave -> new LongAdder()).add(delta);
+    }
+
+    private void sumarEnBandeja(String usuario, long delta) {
+        noLeidasPorUsuario.computeIfAbsent(usuario, clave -> new LongAdder()).add(delta);
+    }
+
+    private boolean esDeHoy(Alerta alerta) {
+        renovarDia();
+        return alerta.getFechaCreacion() != null && alerta.getFechaCreacion().toLocalDate().equals(diaCreadas);
+    }
+
+    private void renovarDia() {
+        LocalDate hoy = LocalDate.now();
+        if (!hoy.equals(diaCreadas)) {
+            synchronized (creadasHoy) {
+                if (!hoy.equals(diaCreadas)) {
+                    creadasHoy.reset();
+                    diaCreadas = hoy;
+                }
+            }
+        }
+    }
+
+    /**
+     * Aplica el cambio solo si la transacción se confirma (si no hay transacción, de inmediato)
+     */
+    private void despuesDeConfirmar(Runnable cambio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(cambio);
+                }
+            });
+        } else {
+            aplicar(cambio);
+        }
+    }
+
+    private void aplicar(Runnable cambio) {
+        synchronized (cerrojoCambios) {
+            cambio.run();
+            if (cambiosDuranteReconciliacion != null) {
+                cambiosDuranteReconciliacion.add(cambio);
+            }
+        }
+    }
+}
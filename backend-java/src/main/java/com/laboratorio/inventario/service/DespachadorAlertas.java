@@ -0,0 +1,307 @@
+package com.laboratorio.inventario.service;
+
+import com.laboratorio.inventario.dto.AlertaDTO;
+import com.laboratorio.inventario.dto.ReanudacionAlertasDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Envío de alertas por WebSocket en micro-lotes
+ *
+ * Las alertas se encolan por destino (canal general o bandeja de un usuario) y se
+ * envían como una sola trama con un arreglo de alertas cada pocos milisegundos, o en
+ * cuanto un destino acumula "max-lote" alertas. Si una alerta se actualiza antes de
+ * enviarse (leída, renotificada...), solo se envía su último estado.
+ *
+ * Así un ciclo de verificación de 500 alertas sale en unas pocas tramas, que el broker
+ * serializa una vez por trama y no una vez por alerta.
+ *
+ * Las alertas del canal general se envían también a los temas de su prioridad, su insumo
+ * y la categoría del insumo (/topic/alertas/{prioridad}, /topic/alertas/insumo/{id},
+ * /topic/alertas/categoria/{categoria}) si alguna sesión está suscrita a ellos, para que
+ * un cliente que solo vigila unos pocos insumos reciba únicamente esas alertas.
+ *
+ * Cada alerta encolada recibe un número de secuencia y se guarda en un búfer circular de
+ * repetición. Las tramas llevan las cabeceras "instancia" (esta ejecución del servidor) y
+ * "secuencia" (la mayor de la trama), con las que un cliente que se reconecta pide solo
+ * lo que se perdió sin consultar la base de datos.
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class DespachadorAlertas {
+
+    public static final String DESTINO_GENERAL = "/topic/alertas";
+    public static final String DESTINO_BANDEJA = "/queue/alertas";
+
+    public static final String PREFIJO_TEMA_INSUMO = DESTINO_GENERAL + "/insumo/";
+    public static final String PREFIJO_TEMA_CATEGORIA = DESTINO_GENERAL + "/categoria/";
+
+    private static final Pattern CARACTERES_FUERA_DE_SEGMENTO = Pattern.compile("[^\\p{L}\\p{N}-]");
+
+    public static final String CABECERA_INSTANCIA = "instancia";
+    public static final String CABECERA_SECUENCIA = "secuencia";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private SuscripcionesAlertas suscripciones;
+
+    // Alertas por destino que fuerzan el envío sin esperar al siguiente intervalo
+    @Value("${alertas.websocket.max-lote:100}")
+    private int maxLote;
+
+    // Alertas publicadas que se conservan para las reanudaciones
+    @Value("${alertas.websocket.repeticion-capacidad:2000}")
+    private int capacidadRepeticion;
+
+    // Destino (usuario null: canal general)
+    private record Destino(String usuario, String destino) {
+    }
+
+    private record Publicacion(long secuencia, AlertaDTO alerta) {
+    }
+
+    // Las secuencias de otra ejecución del servidor no son comparables con las de esta
+    private final String instancia = Long.toString(System.currentTimeMillis(), 36);
+
+    // Todo lo siguiente se modifica con el monitor de la instancia
+
+    // Alertas pendientes por destino, por ID
+    private Map<Destino, Map<Long, Publicacion>> pendientes = new LinkedHashMap<>();
+
+    private long ultimaSecuencia;
+
+    // Búfer circular de repetición: la secuencia s ocupa la posición s % capacidad
+    private AlertaDTO[] repeticionAlertas;
+    private String[] repeticionUsuarios; // null: canal general
+
+    // Claves negativas para las alertas sin ID (no se coalescen)
+    private long siguienteSinId = -1;
+
+    // Las tramas se extraen y envían de una en una para no desordenar dos estados de una alerta
+    private final Object envio = new Object();
+
+    private final AtomicLong tramasEnviadas = new AtomicLong();
+    private final AtomicLong alertasEnviadas = new AtomicLong();
+    private final AtomicLong alertasCoalescidas = new AtomicLong();
+    private final AtomicLong reanudacionesDesdeMemoria = new AtomicLong();
+
+    @PostConstruct
+    void inicializar() {
+        repeticionAlertas = new AlertaDTO[capacidadRepeticion];
+        repeticionUsuarios = new String[capacidadRepeticion];
+    }
+
+    /**
+     * Encola la alerta para todos los clientes suscritos a /topic/alertas y a sus temas
+     */
+    public void encolar(AlertaDTO alerta) {
+        List<Destino> destinos = new ArrayList<>(4);
+        destinos.add(new Destino(null, DESTINO_GENERAL));
+        for (String tema : temasDe(alerta)) {
+            if (suscripciones.tieneSuscriptores(tema)) {
+                destinos.add(new Destino(null, tema));
+            }
+        }
+        encolar(null, destinos, alerta);
+    }
+
+    /**
+     * Encola la alerta para las sesiones del usuario (/user/queue/alertas)
+     */
+    public void encolarAUsuario(String usuario, AlertaDTO alerta) {
+        encolar(usuario, List.of(new Destino(usuario, DESTINO_BANDEJA)), alerta);
+    }
+
+    /**
+     * Temas de una alerta: su prioridad, su insumo y la categoría del insumo
+     */
+    public static List<String> temasDe(AlertaDTO alerta) {
+        List<String> temas = new ArrayList<>(3);
+        if (alerta.getPrioridad() != null) {
+            temas.add(DESTINO_GENERAL + "/" + alerta.getPrioridad());
+        }
+        if (alerta.getInsumoId() != null) {
+            temas.add(PREFIJO_TEMA_INSUMO + alerta.getInsumoId());
+        }
+        if (alerta.getInsumoCategoria() != null && !alerta.getInsumoCategoria().isBlank()) {
+            temas.add(PREFIJO_TEMA_CATEGORIA + segmentoDeCategoria(alerta.getInsumoCategoria()));
+        }
+        return temas;
+    }
+
+    /**
+     * Segmento de destino de una categoría: en mayúsculas y con "_" en lugar de
+     * los caracteres que no son letras, dígitos o "-" ("Material vidrio" -> MATERIAL_VIDRIO)
+     */
+    public static String segmentoDeCategoria(String categoria) {
+        return CARACTERES_FUERA_DE_SEGMENTO.matcher(categoria.trim().toUpperCase()).replaceAll("_");
+    }
+
+    /**
+     * Envía las tramas pendientes de todos los destinos (por defecto cada 50 ms)
+     */
+    @Scheduled(fixedDelayString = "${alertas.websocket.intervalo-ms:50}")
+    public void vaciar() {
+        synchronized (envio) {
+            Map<Destino, Map<Long, Publicacion>> lote;
+            synchronized (this) {
+                if (pendientes.isEmpty()) {
+                    return;
+                }
+                lote = pendientes;
+                pendientes = new LinkedHashMap<>();
+            }
+            lote.forEach((destino, alertas) -> enviar(destino, alertas));
+        }
+    }
+
+    // Lo pendiente al detener la aplicación no se pierde
+    @PreDestroy
+    void detener() {
+        vaciar();
+    }
+
+    /**
+     * Alertas publicadas para el destino después de "desdeSecuencia" (la última versión de
+     * cada una), o null si el cliente viene de otra ejecución del servidor o el búfer ya no
+     * las contiene todas
+     *
+     * @param usuario Bandeja del cliente, o null para el canal general
+     */
+    public synchronized ReanudacionAlertasDTO repetirDesde(String usuario, String instanciaCliente,
+                                                           long desdeSecuencia) {
+        long primeraConservada = Math.max(1, ultimaSecuencia - capacidadRepeticion + 1);
+        if (!instancia.equals(instanciaCliente) || desdeSecuencia > ultimaSecuencia
+                || desdeSecuencia + 1 < primeraConservada) {
+            return null;
+        }
+
+        Map<Long, AlertaDTO> alertas = new LinkedHashMap<>();
+        for (long secuencia = desdeSecuencia + 1; secuencia <= ultimaSecuencia; secuencia++) {
+            int posicion = (int) (secuencia % capacidadRepeticion);
+            AlertaDTO alerta = repeticionAlertas[posicion];
+            if (alerta == null || !Objects.equals(repeticionUsuarios[posicion], usuario)) {
+                continue;
+            }
+            Long clave = alerta.getId() != null ? alerta.getId() : -secuencia;
+            // Cada alerta aparece en la posición de su última versión
+            alertas.remove(clave);
+            alertas.put(clave, alerta);
+        }
+
+        reanudacionesDesdeMemoria.incrementAndGet();
+        return new ReanudacionAlertasDTO(instancia, ultimaSecuencia, "MEMORIA", true,
+                new ArrayList<>(alertas.values()));
+    }
+
+    public String getInstancia() {
+        return instancia;
+    }
+
+    public synchronized long getUltimaSecuencia() {
+        return ultimaSecuencia;
+    }
+
+    public long getReanudacionesDesdeMemoria() {
+        return reanudacionesDesdeMemoria.get();
+    }
+
+    public long getTramasEnviadas() {
+        return tramasEnviadas.get();
+    }
+
+    public long getAlertasEnviadas() {
+        return alertasEnviadas.get();
+    }
+
+    public long getAlertasCoalescidas() {
+        return alertasCoalescidas.get();
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    // Una sola secuencia y entrada de repetición por alerta, aunque vaya a varios temas
+    private void encolar(String usuario, List<Destino> destinos, AlertaDTO alerta) {
+        List<Destino> llenos = null;
+        synchronized (this) {
+            long secuencia = ++ultimaSecuencia;
+            int posicion = (int) (secuencia % capacidadRepeticion);
+            repeticionAlertas[posicion] = alerta;
+            repeticionUsuarios[posicion] = usuario;
+
+            Publicacion publicacion = new Publicacion(secuencia, alerta);
+            Long clave = alerta.getId() != null ? alerta.getId() : siguienteSinId--;
+            for (Destino destino : destinos) {
+                Map<Long, Publicacion> alertas = pendientes.computeIfAbsent(destino, d -> new LinkedHashMap<>());
+                // Una actualización conserva la posición de la alerta en la trama
+                if (alertas.put(clave, publicacion) != null) {
+                    alertasCoalescidas.incrementAndGet();
+                }
+                if (alertas.size() >= maxLote) {
+                    if (llenos == null) {
+                        llenos = new ArrayList<>(destinos.size());
+                    }
+                    llenos.add(destino);
+                }
+            }
+        }
+
+        if (llenos != null) {
+            llenos.forEach(this::vaciarDestino);
+        }
+    }
+
+    private void vaciarDestino(Destino destino) {
+        synchronized (envio) {
+            Map<Long, Publicacion> alertas;
+            synchronized (this) {
+                alertas = pendientes.remove(destino);
+            }
+            if (alertas != null) {
+                enviar(destino, alertas);
+            }
+        }
+    }
+
+    private void enviar(Destino destino, Map<Long, Publicacion> alertas) {
+        List<AlertaDTO> trama = new ArrayList<>(alertas.size());
+        long secuencia = 0;
+        for (Publicacion publicacion : alertas.values()) {
+            trama.add(publicacion.alerta());
+            secuencia = Math.max(secuencia, publicacion.secuencia());
+        }
+        Map<String, Object> cabeceras = Map.of(CABECERA_INSTANCIA, instancia, CABECERA_SECUENCIA, secuencia);
+
+        try {
+            if (destino.usuario() == null) {
+                messagingTemplate.convertAndSend(destino.destino(), trama, cabeceras);
+            } else {
+                messagingTemplate.convertAndSendToUser(destino.usuario(), destino.destino(), trama, cabeceras);
+            }
+            tramasEnviadas.incrementAndGet();
+            alertasEnviadas.addAndGet(trama.size());
+        } catch (Exception e) {
+            System.err.println("❌ Error enviando " + trama.size() + " alertas por WebSocket a "
+                    + destino.destino() + ": " + e.getMessage());
+        }
+    }
+}
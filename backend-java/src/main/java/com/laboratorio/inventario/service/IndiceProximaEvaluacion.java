@@ -0,0 +1,147 @@
+package com.laboratorio.inventario.service;
+
+import java.util.Arrays;
+
+/**
+ * Índice del próximo día "interesante" de cada fila de la instantánea
+ *
+ * Para cada insumo y lote guarda el primer día en que el paso del tiempo puede cambiar el
+ * resultado de alguna regla (un cruce de umbral de caducidad o de agotamiento previsto), y
+ * mantiene las filas ordenadas por ese día en un montículo. La verificación periódica solo
+ * extrae las filas cuyo día ya llegó; el resto no se vuelve a evaluar hasta que se modifiquen.
+ *
+ * Los montículos guardan "día << 32 | fila" en arreglos de long (sin objetos por entrada).
+ * Al reprogramar una fila su entrada anterior no se borra: se descarta al salir si el día
+ * ya no coincide con el vigente. No es seguro entre hilos: InventarioEnMemoria controla el acceso.
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+public final class IndiceProximaEvaluacion {
+
+    // Fila sin ningún cruce futuro
+    public static final long NUNCA = Long.MAX_VALUE;
+
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    private final Monticulo insumos = new Monticulo();
+    private final Monticulo lotes = new Monticulo();
+
+    public void programarInsumo(int fila, long dia) {
+        insumos.programar(fila, dia);
+    }
+
+    public void programarLote(int fila, long dia) {
+        lotes.programar(fila, dia);
+    }
+
+    /**
+     * Extrae las filas de insumo cuyo día programado es "hoy" o anterior; quedan sin programar
+     */
+    public int[] extraerInsumosVencidos(long hoy) {
+        return insumos.extraerVencidos(hoy);
+    }
+
+    public int[] extraerLotesVencidos(long hoy) {
+        return lotes.extraerVencidos(hoy);
+    }
+
+    // Entradas en los montículos (incluidas las ya reprogramadas)
+    public int getEntradasPendientes() {
+        return insumos.tamano + lotes.tamano;
+    }
+
+    // ==========================================
+    // MONTÍCULO DE MÍNIMOS
+    // ==========================================
+
+    private static final class Monticulo {
+
+        // Día programado vigente de cada fila (NUNCA si no tiene)
+        private long[] diaPorFila = new long[CAPACIDAD_INICIAL];
+        private int numFilas;
+
+        private long[] entradas = new long[CAPACIDAD_INICIAL];
+        private int tamano;
+
+        void programar(int fila, long dia) {
+            if (fila >= diaPorFila.length) {
+                int capacidad = Math.max(fila + 1, diaPorFila.length * 2);
+                diaPorFila = Arrays.copyOf(diaPorFila, capacidad);
+            }
+            if (fila >= numFilas) {
+                Arrays.fill(diaPorFila, numFilas, fila + 1, NUNCA);
+                numFilas = fila + 1;
+            }
+
+            if (diaPorFila[fila] == dia) {
+                return; // Ya está en el montículo con ese día
+            }
+            diaPorFila[fila] = dia;
+            if (dia != NUNCA) {
+                agregar((dia << 32) | fila);
+            }
+        }
+
+        int[] extraerVencidos(long hoy) {
+            int[] vencidos = new int[8];
+            int total = 0;
+
+            while (tamano > 0 && (entradas[0] >> 32) <= hoy) {
+                long entrada = extraerMinimo();
+                int fila = (int) entrada;
+                if (diaPorFila[fila] != entrada >> 32) {
+                    continue; // Entrada de una programación anterior
+                }
+                diaPorFila[fila] = NUNCA;
+
+                if (total == vencidos.length) {
+                    vencidos = Arrays.copyOf(vencidos, total * 2);
+                }
+                vencidos[total++] = fila;
+            }
+
+            return Arrays.copyOf(vencidos, total);
+        }
+
+        private void agregar(long entrada) {
+            if (tamano == entradas.length) {
+                entradas = Arrays.copyOf(entradas, tamano * 2);
+            }
+            int i = tamano++;
+            while (i > 0) {
+                int padre = (i - 1) / 2;
+                if (entradas[padre] <= entrada) {
+                    break;
+                }
+                entradas[i] = entradas[padre];
+                i = padre;
+            }
+            entradas[i] = entrada;
+        }
+
+        private long extraerMinimo() {
+            long minimo = entradas[0];
+            long ultima = entradas[--tamano];
+
+            int i = 0;
+            while (true) {
+                int hijo = 2 * i + 1;
+                if (hijo >= tamano) {
+                    break;
+                }
+                if (hijo + 1 < tamano && entradas[hijo + 1] < entradas[hijo]) {
+                    hijo++;
+                }
+                if (ultima <= entradas[hijo]) {
+                    break;
+                }
+                entradas[i] = entradas[hijo];
+                i = hijo;
+            }
+            entradas[i] = ultima;
+
+            return minimo;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.laboratorio.inventario.service;
+
+import com.laboratorio.inventario.enums.AmbitoRegla;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instantánea en columnas del estado del inventario, para las reglas de alertas y las estadísticas
+ *
+ * Cada insumo y cada lote ocupa una fila, y cada campo es un arreglo de primitivos: cantidades en
+ * punto fijo (centésimas, como las columnas DECIMAL(10,2)), caducidad y agotamiento previsto en días
+ * epoch, categoría como ordinal de un diccionario y consumo diario. Recorrer todas las filas no crea
+ * objetos; los nombres solo se leen al materializar una fila que genera alerta.
+ *
+ * Las filas se actualizan en su sitio (las dadas de baja quedan inactivas hasta la siguiente
+ * recarga completa). No es segura entre hilos: InventarioEnMemoria controla el acceso.
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+public final class InstantaneaInventario {
+
+    /**
+     * Métricas disponibles en las condiciones de las reglas.
+     * Las de insumo también se pueden usar en reglas de lote (se leen del insumo del lote).
+     */
+    public enum Metrica {
+        CANTIDAD_ACTUAL(AmbitoRegla.INSUMO),
+        CANTIDAD_MINIMA(AmbitoRegla.INSUMO),
+        CONSUMO_DIARIO(AmbitoRegla.INSUMO),
+        DIAS_HASTA_AGOTAMIENTO(AmbitoRegla.INSUMO),
+        CANTIDAD_LOTE(AmbitoRegla.LOTE),
+        DIAS_HASTA_CADUCIDAD(AmbitoRegla.LOTE);
+
+        private final AmbitoRegla ambito;
+
+        Metrica(AmbitoRegla ambito) {
+            this.ambito = ambito;
+        }
+
+        public boolean aplicableA(AmbitoRegla ambitoRegla) {
+            return ambitoRegla == AmbitoRegla.LOTE || ambito == AmbitoRegla.INSUMO;
+        }
+
+        /**
+         * Métricas "días hasta": su valor baja en uno cada día sin que cambie la fila
+         */
+        public boolean dependeDelDia() {
+            return this == DIAS_HASTA_AGOTAMIENTO || this == DIAS_HASTA_CADUCIDAD;
+        }
+
+        /**
+         * Valor de la métrica en una fila de insumo (NaN si no tiene dato); "hoy" en días epoch
+         */
+        public double valorInsumo(InstantaneaInventario instantanea, int fila, long hoy) {
+            switch (this) {
+                case CANTIDAD_ACTUAL:
+                    return aDecimal(instantanea.cantidadActual[fila]);
+                case CANTIDAD_MINIMA:
+                    return aDecimal(instantanea.cantidadMinima[fila]);
+                case CONSUMO_DIARIO:
+                    return instantanea.consumoDiario[fila];
+                case DIAS_HASTA_AGOTAMIENTO:
+                    return diasHasta(instantanea.fechaAgotamiento[fila], hoy);
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        /**
+         * Valor de la métrica en una fila de lote; "hoy" en días epoch
+         */
+        public double valorLote(InstantaneaInventario instantanea, int fila, long hoy) {
+            switch (this) {
+                case CANTIDAD_LOTE:
+                    return aDecimal(instantanea.loteCantidad[fila]);
+                case DIAS_HASTA_CADUCIDAD:
+                    return instantanea.loteCaducidad[fila] - hoy;
+                default:
+                    int filaInsumo = instantanea.loteFilaInsumo[fila];
+                    return filaInsumo >= 0 ? valorInsumo(instantanea, filaInsumo, hoy) : Double.NaN;
+            }
+        }
+
+        /**
+         * Día epoch al que cuenta la métrica en una fila de insumo, o SIN_DATO si la métrica
+         * no depende del día o la fila no tiene dato
+         */
+        public long fechaInsumo(InstantaneaInventario instantanea, int fila) {
+            return this == DIAS_HASTA_AGOTAMIENTO ? instantanea.fechaAgotamiento[fila] : SIN_DATO;
+        }
+
+        /**
+         * Día epoch al que cuenta la métrica en una fila de lote, o SIN_DATO
+         */
+        public long fechaLote(InstantaneaInventario instantanea, int fila) {
+            switch (this) {
+                case DIAS_HASTA_CADUCIDAD:
+                    return instantanea.loteCaducidad[fila];
+                case CANTIDAD_LOTE:
+                    return SIN_DATO;
+                default:
+                    int filaInsumo = instantanea.loteFilaInsumo[fila];
+                    return filaInsumo >= 0 ? fechaInsumo(instantanea, filaInsumo) : SIN_DATO;
+            }
+        }
+    }
+
+    /**
+     * Fila de insumo materializada (solo para las filas que generan alerta)
+     */
+    public record EstadoInsumo(Long id, String nombre, String codigoCatalogo, String categoria,
+                               double cantidadActual, double cantidadMinima,
+                               double consumoDiario, double diasHastaAgotamiento) {
+    }
+
+    /**
+     * Fila de lote materializada; "insumo" es null si su insumo no está en la instantánea
+     */
+    public record EstadoLote(Long id, String numeroLote, LocalDate fechaCaducidad,
+                             double cantidadActual, double diasHastaCaducidad,
+                             Long insumoId, EstadoInsumo insumo) {
+    }
+
+    // Centésimas por unidad en las cantidades en punto fijo
+    private static final int ESCALA = 100;
+
+    // Cantidad o fecha sin dato (nula en la base de datos, o sin consumo para prever el agotamiento)
+    public static final long SIN_DATO = Long.MIN_VALUE;
+
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    // ==========================================
+    // COLUMNAS DE INSUMOS
+    // ==========================================
+
+    private int numInsumos;
+    private long[] insumoId = new long[CAPACIDAD_INICIAL];
+    private long[] cantidadActual = new long[CAPACIDAD_INICIAL];
+    private long[] cantidadMinima = new long[CAPACIDAD_INICIAL];
+    private double[] consumoDiario = new double[CAPACIDAD_INICIAL];
+    private long[] fechaAgotamiento = new long[CAPACIDAD_INICIAL];
+    private int[] categoria = new int[CAPACIDAD_INICIAL];
+    private boolean[] insumoActivo = new boolean[CAPACIDAD_INICIAL];
+    private String[] insumoNombre = new String[CAPACIDAD_INICIAL];
+    private String[] insumoCodigo = new String[CAPACIDAD_INICIAL];
+
+    // ==========================================
+    // COLUMNAS DE LOTES
+    // ==========================================
+
+    private int numLotes;
+    private long[] loteId = new long[CAPACIDAD_INICIAL];
+    private long[] loteInsumoId = new long[CAPACIDAD_INICIAL];
+    private int[] loteFilaInsumo = new int[CAPACIDAD_INICIAL];
+    private long[] loteCantidad = new long[CAPACIDAD_INICIAL];
+    private long[] loteCaducidad = new long[CAPACIDAD_INICIAL];
+    private boolean[] loteActivo = new boolean[CAPACIDAD_INICIAL];
+    private String[] loteNumero = new String[CAPACIDAD_INICIAL];
+
+    // Fila de cada ID (solo se consulta al actualizar, no al recorrer)
+    private final Map<Long, Integer> filaPorInsumo = new HashMap<>();
+    private final Map<Long, Integer> filaPorLote = new HashMap<>();
+
+    // Diccionario de categorías: ordinal -> nombre
+    private final List<String> categorias = new ArrayList<>();
+    private final Map<String, Integer> ordinalPorCategoria = new HashMap<>();
+
+    // ==========================================
+    // ACTUALIZACIÓN
+    // ==========================================
+
+    /**
+     * Alta o actualización de la fila de un insumo
+     *
+     * @param fechaAgotamiento Ver {@link #fechaAgotamiento(BigDecimal, double, long)}
+     */
+    public void actualizarInsumo(long id, String nombre, String codigoCatalogo,
+                                 BigDecimal cantidad, BigDecimal minima, String nombreCategoria,
+                                 boolean activo, double consumo, long fechaAgotamiento) {
+        Integer existente = filaPorInsumo.get(id);
+        int fila;
+        if (existente != null) {
+            fila = existente;
+        } else {
+            fila = numInsumos++;
+            asegurarCapacidadInsumos(numInsumos);
+            filaPorInsumo.put(id, fila);
+            insumoId[fila] = id;
+        }
+
+        cantidadActual[fila] = aFijo(cantidad);
+        cantidadMinima[fila] = aFijo(minima);
+        consumoDiario[fila] = consumo;
+        this.fechaAgotamiento[fila] = fechaAgotamiento;
+        categoria[fila] = ordinalDe(nombreCategoria);
+        insumoActivo[fila] = activo;
+        insumoNombre[fila] = nombre;
+        insumoCodigo[fila] = codigoCatalogo;
+
+        // Lotes que llegaron antes que su insumo
+        if (existente == null) {
+            for (int lote = 0; lote < numLotes; lote++) {
+                if (loteFilaInsumo[lote] < 0 && loteInsumoId[lote] == id) {
+                    loteFilaInsumo[lote] = fila;
+                }
+            }
+        }
+    }
+
+    /**
+     * Alta o actualización de la fila de un lote
+     */
+    public void actualizarLote(long id, String numeroLote, LocalDate fechaCaducidad,
+                               BigDecimal cantidad, long idInsumo, boolean activo) {
+        Integer existente = filaPorLote.get(id);
+        int fila;
+        if (existente != null) {
+            fila = existente;
+        } else {
+            fila = numLotes++;
+            asegurarCapacidadLotes(numLotes);
+            filaPorLote.put(id, fila);
+            loteId[fila] = id;
+        }
+
+        Integer filaInsumo = filaPorInsumo.get(idInsumo);
+        loteInsumoId[fila] = idInsumo;
+        loteFilaInsumo[fila] = filaInsumo != null ? filaInsumo : -1;
+        loteCantidad[fila] = aFijo(cantidad);
+        loteCaducidad[fila] = fechaCaducidad.toEpochDay();
+        loteActivo[fila] = activo;
+        loteNumero[fila] = numeroLote;
+    }
+
+    // Baja de un insumo o lote que ya no existe
+    public void desactivarInsumo(long id) {
+        Integer fila = filaPorInsumo.get(id);
+        if (fila != null) {
+            insumoActivo[fila] = false;
+        }
+    }
+
+    public void desactivarLote(long id) {
+        Integer fila = filaPorLote.get(id);
+        if (fila != null) {
+            loteActivo[fila] = false;
+        }
+    }
+
+    /**
+     * Día epoch previsto de agotamiento del stock al consumo diario indicado: "hoy" si ya no hay
+     * stock, SIN_DATO si no hay dato o no hay consumo (mismo cálculo que la predicción de consumo)
+     */
+    public static long fechaAgotamiento(BigDecimal cantidad, double consumo, long hoy) {
+        if (cantidad == null) {
+            return SIN_DATO;
+        }
+        if (cantidad.signum() <= 0) {
+            return hoy;
+        }
+        if (!(consumo > 0)) {
+            return SIN_DATO;
+        }
+        return hoy + (long) Math.ceil(cantidad.doubleValue() / consumo);
+    }
+
+    // ==========================================
+    // LECTURA POR FILA
+    // ==========================================
+
+    public int getNumInsumos() {
+        return numInsumos;
+    }
+
+    public int getNumLotes() {
+        return numLotes;
+    }
+
+    public boolean insumoActivo(int fila) {
+        return insumoActivo[fila];
+    }
+
+    public boolean loteActivo(int fila) {
+        return loteActivo[fila];
+    }
+
+    // Fila del ID indicado, o -1 si no está en la instantánea
+    public int filaInsumo(Long id) {
+        return filaPorInsumo.getOrDefault(id, -1);
+    }
+
+    public int filaLote(Long id) {
+        return filaPorLote.getOrDefault(id, -1);
+    }
+
+    public long getInsumoId(int fila) {
+        return insumoId[fila];
+    }
+
+    public long getLoteId(int fila) {
+        return loteId[fila];
+    }
+
+    public EstadoInsumo estadoInsumo(int fila, long hoy) {
+        return new EstadoInsumo(insumoId[fila], insumoNombre[fila], insumoCodigo[fila],
+                categoria[fila] >= 0 ? categorias.get(categoria[fila]) : null,
+                aDecimal(cantidadActual[fila]), aDecimal(cantidadMinima[fila]),
+                consumoDiario[fila], diasHasta(fechaAgotamiento[fila], hoy));
+    }
+
+    public EstadoLote estadoLote(int fila, long hoy) {
+        int filaInsumo = loteFilaInsumo[fila];
+        return new EstadoLote(loteId[fila], loteNumero[fila], LocalDate.ofEpochDay(loteCaducidad[fila]),
+                aDecimal(loteCantidad[fila]), loteCaducidad[fila] - hoy,
+                loteInsumoId[fila], filaInsumo >= 0 ? estadoInsumo(filaInsumo, hoy) : null);
+    }
+
+    // ==========================================
+    // ESTADÍSTICAS (RECORRIDOS SIN OBJETOS)
+    // ==========================================
+
+    public long contarInsumosActivos() {
+        long total = 0;
+        for (int fila = 0; fila < numInsumos; fila++) {
+            if (insumoActivo[fila]) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    public long contarInsumosBajoMinimo() {
+        long total = 0;
+        for (int fila = 0; fila < numInsumos; fila++) {
+            if (insumoActivo[fila] && cantidadActual[fila] != SIN_DATO && cantidadMinima[fila] != SIN_DATO
+                    && cantidadActual[fila] < cantidadMinima[fila]) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Lotes activos cuya caducidad (días epoch) está en [desde, hasta]
+     */
+    public long contarLotesCaducanEntre(long desde, long hasta) {
+        long total = 0;
+        for (int fila = 0; fila < numLotes; fila++) {
+            if (loteActivo[fila] && loteCaducidad[fila] >= desde && loteCaducidad[fila] <= hasta) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Insumos activos por categoría ("Sin categoría" si no tienen)
+     */
+    public Map<String, Long> contarInsumosPorCategoria() {
+        long[] conteo = new long[categorias.size() + 1];
+        for (int fila = 0; fila < numInsumos; fila++) {
+            if (insumoActivo[fila]) {
+                conteo[categoria[fila] + 1]++;
+            }
+        }
+
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        if (conteo[0] > 0) {
+            resultado.put("Sin categoría", conteo[0]);
+        }
+        for (int ordinal = 0; ordinal < categorias.size(); ordinal++) {
+            if (conteo[ordinal + 1] > 0) {
+                resultado.put(categorias.get(ordinal), conteo[ordinal + 1]);
+            }
+        }
+        return resultado;
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private static long aFijo(BigDecimal valor) {
+        return valor != null ? valor.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact() : SIN_DATO;
+    }
+
+    private static double aDecimal(long fijo) {
+        return fijo != SIN_DATO ? (double) fijo / ESCALA : Double.NaN;
+    }
+
+    private static double diasHasta(long fecha, long hoy) {
+        return fecha != SIN_DATO ? fecha - hoy : Double.NaN;
+    }
+
+    // Ordinal de la categoría en el diccionario (-1 sin categoría)
+    private int ordinalDe(String nombreCategoria) {
+        if (nombreCategoria == null) {
+            return -1;
+        }
+        return ordinalPorCategoria.computeIfAbsent(nombreCategoria, nombre -> {
+            categorias.add(nombre);
+            return categorias.size() - 1;
+        });
+    }
+
+    private void asegurarCapacidadInsumos(int minimo) {
+        if (minimo <= insumoId.length) {
+            return;
+        }
+        int capacidad = Math.max(minimo, insumoId.length * 2);
+        insumoId = Arrays.copyOf(insumoId, capacidad);
+        cantidadActual = Arrays.copyOf(cantidadActual, capacidad);
+        cantidadMinima = Arrays.copyOf(cantidadMinima, capacidad);
+        consumoDiario = Arrays.copyOf(consumoDiario, capacidad);
+        fechaAgotamiento = Arrays.copyOf(fechaAgotamiento, capacidad);
+        categoria = Arrays.copyOf(categoria, capacidad);
+        insumoActivo = Arrays.copyOf(insumoActivo, capacidad);
+        insumoNombre = Arrays.copyOf(insumoNombre, capacidad);
+        insumoCodigo = Arrays.copyOf(insumoCodigo, capacidad);
+    }
+
+    private void asegurarCapacidadLotes(int minimo) {
+        if (minimo <= loteId.length) {
+            return;
+        }
+        int capacidad = Math.max(minimo, loteId.length * 2);
+        loteId = Arrays.copyOf(loteId, capacidad);
+        loteInsumoId = Arrays.copyOf(loteInsumoId, capacidad);
+        loteFilaInsumo = Arrays.copyOf(loteFilaInsumo, capacidad);
+        loteCantidad = Arrays.copyOf(loteCantidad, capacidad);
+        loteCaducidad = Arrays.copyOf(loteCaducidad, capacidad);
+        loteActivo = Arrays.copyOf(loteActivo, capacidad);
+        loteNumero = Arrays.copyOf(loteNumero, capacidad);
+    }
+}
@@ -0,0 +1,311 @@
+package com.laboratorio.inventario.service;
+
+import com.laboratorio.inventario.config.ReglasAlertasProperties;
+import com.laboratorio.inventario.event.InventarioModificadoEvent;
+import com.laboratorio.inventario.repository.InsumoRepository;
+import com.laboratorio.inventario.repository.LoteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Instantánea del inventario en memoria, compartida por las reglas de alertas y las estadísticas
+ *
+ * Se carga completa al arrancar y en cada reconciliación (dos consultas, una tras otra). Entre
+ * recargas se mantiene al día con los InventarioModificadoEvent: los IDs modificados quedan
+ * pendientes y se vuelven a leer de la base de datos, en dos consultas por IDs, antes de la
+ * siguiente lectura.
+ *
+ * Junto a la instantánea se mantiene el índice del próximo día en que cada fila puede cambiar
+ * de resultado en las reglas sin ser modificada, que se reprograma al aplicar cada fila.
+ *
+ * Las lecturas comparten el cerrojo de lectura; los refrescos toman el de escritura solo
+ * para copiar las filas ya leídas. Las recargas y los refrescos se ejecutan de uno en uno.
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class InventarioEnMemoria {
+
+    @Autowired
+    private InsumoRepository insumoRepository;
+
+    @Autowired
+    private LoteRepository loteRepository;
+
+    @Autowired
+    private ReglasAlertasProperties reglasAlertas;
+
+    @Autowired
+    private MotorReglasAlertas motorReglas;
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    // Sustituidos enteros en cada recarga; se modifican en su sitio con el cerrojo de escritura
+    private InstantaneaInventario instantanea = new InstantaneaInventario();
+    private IndiceProximaEvaluacion indice = new IndiceProximaEvaluacion();
+
+    private final Set<Long> insumosPendientes = ConcurrentHashMap.newKeySet();
+    private final Set<Long> lotesPendientes = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        recargar();
+    }
+
+    /**
+     * Marca como pendientes de refresco los elementos modificados (después del commit)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventarioModificado(InventarioModificadoEvent evento) {
+        if (evento.getInsumoId() != null) {
+            insumosPendientes.add(evento.getInsumoId());
+        }
+        if (evento.getLoteId() != null) {
+            lotesPendientes.add(evento.getLoteId());
+        }
+    }
+
+    /**
+     * Recarga completa: todos los insumos (con su consumo) y los lotes activos.
+     * Descarta las filas dadas de baja, recalcula el consumo diario con la ventana actual
+     * y reprograma todas las filas en un índice nuevo.
+     */
+    public synchronized void recargar() {
+        LocalDate hoy = LocalDate.now();
+        int diasConsumo = reglasAlertas.getDiasConsumo();
+
+        // Dos consultas planas; solo se repiten al arrancar y en cada reconciliación completa
+        List<Object[]> insumos = insumoRepository.findEstadoTodos(hoy.minusDays(diasConsumo), hoy);
+        List<Object[]> lotes = loteRepository.findEstadoActivos();
+
+        // La nueva instantánea se construye fuera del cerrojo
+        InstantaneaInventario nueva = new InstantaneaInventario();
+        IndiceProximaEvaluacion nuevoIndice = new IndiceProximaEvaluacion();
+        int[] filasInsumos = aplicarInsumos(nueva, insumos, diasConsumo, hoy.toEpochDay());
+        int[] filasLotes = aplicarLotes(nueva, lotes);
+        programar(nueva, nuevoIndice, filasInsumos, filasLotes, hoy.toEpochDay());
+
+        cerrojo.writeLock().lock();
+        try {
+            instantanea = nueva;
+            indice = nuevoIndice;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+
+        System.out.println("🧮 Instantánea del inventario: " + nueva.getNumInsumos() + " insumos, "
+                + nueva.getNumLotes() + " lotes, " + nuevoIndice.getEntradasPendientes() + " evaluaciones programadas");
+    }
+
+    /**
+     * Vuelve a leer los elementos indicados y todos los pendientes
+     */
+    public synchronized void refrescar(Collection<Long> insumoIds, Collection<Long> loteIds) {
+        Set<Long> insumos = drenar(insumosPendientes, insumoIds);
+        Set<Long> lotes = drenar(lotesPendientes, loteIds);
+        if (insumos.isEmpty() && lotes.isEmpty()) {
+            return;
+        }
+
+        LocalDate hoy = LocalDate.now();
+        int diasConsumo = reglasAlertas.getDiasConsumo();
+
+        List<Object[]> filasLotes = lotes.isEmpty() ? List.of() : loteRepository.findEstadoPorIds(lotes);
+        // El insumo de cada lote también se refresca (puede ser nuevo en la instantánea)
+        for (Object[] fila : filasLotes) {
+            insumos.add(((Number) fila[4]).longValue());
+        }
+        List<Object[]> filasInsumos = insumos.isEmpty() ? List.of()
+                : insumoRepository.findEstadoPorIds(insumos, hoy.minusDays(diasConsumo), hoy);
+
+        cerrojo.writeLock().lock();
+        try {
+            // Los IDs que no devuelve la consulta ya no existen
+            Set<Long> insumosSinFila = new HashSet<>(insumos);
+            Set<Long> lotesSinFila = new HashSet<>(lotes);
+
+            int[] insumosAplicados = aplicarInsumos(instantanea, filasInsumos, diasConsumo, hoy.toEpochDay());
+            filasInsumos.forEach(fila -> insumosSinFila.remove(((Number) fila[0]).longValue()));
+            int[] lotesAplicados = aplicarLotes(instantanea, filasLotes);
+            filasLotes.forEach(fila -> lotesSinFila.remove(((Number) fila[0]).longValue()));
+
+            insumosSinFila.forEach(instantanea::desactivarInsumo);
+            lotesSinFila.forEach(instantanea::desactivarLote);
+
+            // Los lotes no se reprograman cuando solo cambia su insumo; la reconciliación lo cubre
+            programar(instantanea, indice, insumosAplicados, lotesAplicados, hoy.toEpochDay());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    public void refrescarPendientes() {
+        refrescar(Set.of(), Set.of());
+    }
+
+    /**
+     * Insumos y lotes cuyo próximo día de evaluación ya llegó
+     */
+    public record EvaluacionesVencidas(Set<Long> insumoIds, Set<Long> loteIds) {
+
+        public boolean isEmpty() {
+            return insumoIds.isEmpty() && loteIds.isEmpty();
+        }
+    }
+
+    /**
+     * Extrae del índice las filas cuyo día de evaluación es hoy o anterior y las reprograma
+     * para su siguiente cruce. Las filas inactivas salen del índice.
+     */
+    public EvaluacionesVencidas extraerEvaluacionesVencidas() {
+        long hoy = LocalDate.now().toEpochDay();
+        Set<Long> insumoIds = new HashSet<>();
+        Set<Long> loteIds = new HashSet<>();
+
+        cerrojo.writeLock().lock();
+        try {
+            int[] filasInsumos = indice.extraerInsumosVencidos(hoy);
+            int[] filasLotes = indice.extraerLotesVencidos(hoy);
+            programar(instantanea, indice, filasInsumos, filasLotes, hoy);
+
+            for (int fila : filasInsumos) {
+                if (instantanea.insumoActivo(fila)) {
+                    insumoIds.add(instantanea.getInsumoId(fila));
+                }
+            }
+            for (int fila : filasLotes) {
+                if (instantanea.loteActivo(fila)) {
+                    loteIds.add(instantanea.getLoteId(fila));
+                }
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+
+        return new EvaluacionesVencidas(insumoIds, loteIds);
+    }
+
+    /**
+     * Ejecuta una lectura sobre la instantánea con el cerrojo de lectura.
+     * La lectura no debe conservar referencias a la instantánea.
+     */
+    public <R> R leer(Function<InstantaneaInventario, R> lectura) {
+        cerrojo.readLock().lock();
+        try {
+            return lectura.apply(instantanea);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    // ==========================================
+    // ESTADÍSTICAS
+    // ==========================================
+
+    public long contarInsumosActivos() {
+        refrescarPendientes();
+        return leer(InstantaneaInventario::contarInsumosActivos);
+    }
+
+    public long contarInsumosBajoMinimo() {
+        refrescarPendientes();
+        return leer(InstantaneaInventario::contarInsumosBajoMinimo);
+    }
+
+    /**
+     * Lotes activos con la caducidad ya pasada
+     */
+    public long contarLotesVencidos() {
+        refrescarPendientes();
+        long hoy = LocalDate.now().toEpochDay();
+        return leer(actual -> actual.contarLotesCaducanEntre(Long.MIN_VALUE, hoy - 1));
+    }
+
+    /**
+     * Lotes activos que caducan entre hoy y dentro de "dias" días (ambos incluidos)
+     */
+    public long contarLotesProximosVencer(int dias) {
+        refrescarPendientes();
+        long hoy = LocalDate.now().toEpochDay();
+        return leer(actual -> actual.contarLotesCaducanEntre(hoy, hoy + dias));
+    }
+
+    public Map<String, Long> contarInsumosPorCategoria() {
+        refrescarPendientes();
+        return leer(InstantaneaInventario::contarInsumosPorCategoria);
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    // Filas [id, nombre, codigoCatalogo, cantidadActual, cantidadMinima, categoria, estado, totalSalidas];
+    // devuelve las filas de la instantánea actualizadas
+    private static int[] aplicarInsumos(InstantaneaInventario destino, List<Object[]> filas,
+                                        int diasConsumo, long hoy) {
+        int[] aplicadas = new int[filas.size()];
+        int i = 0;
+        for (Object[] fila : filas) {
+            long id = ((Number) fila[0]).longValue();
+            BigDecimal cantidad = (BigDecimal) fila[3];
+            double consumo = fila[7] != null ? ((Number) fila[7]).doubleValue() / diasConsumo : 0.0;
+            destino.actualizarInsumo(id, (String) fila[1], (String) fila[2],
+                    cantidad, (BigDecimal) fila[4], (String) fila[5], "activo".equals(fila[6]),
+                    consumo, InstantaneaInventario.fechaAgotamiento(cantidad, consumo, hoy));
+            aplicadas[i++] = destino.filaInsumo(id);
+        }
+        return aplicadas;
+    }
+
+    // Filas [id, numeroLote, fechaCaducidad, cantidadActual, insumoId, estado]
+    private static int[] aplicarLotes(InstantaneaInventario destino, List<Object[]> filas) {
+        int[] aplicadas = new int[filas.size()];
+        int i = 0;
+        for (Object[] fila : filas) {
+            long id = ((Number) fila[0]).longValue();
+            destino.actualizarLote(id, (String) fila[1], (LocalDate) fila[2],
+                    (BigDecimal) fila[3], ((Number) fila[4]).longValue(), "activo".equals(fila[5]));
+            aplicadas[i++] = destino.filaLote(id);
+        }
+        return aplicadas;
+    }
+
+    // Próximo día de evaluación de las filas indicadas (las inactivas no se programan)
+    private void programar(InstantaneaInventario origen, IndiceProximaEvaluacion destino,
+                           int[] filasInsumos, int[] filasLotes, long hoy) {
+        for (int fila : filasInsumos) {
+            destino.programarInsumo(fila, origen.insumoActivo(fila)
+                    ? motorReglas.proximaEvaluacionInsumo(origen, fila, hoy) : IndiceProximaEvaluacion.NUNCA);
+        }
+        for (int fila : filasLotes) {
+            destino.programarLote(fila, origen.loteActivo(fila)
+                    ? motorReglas.proximaEvaluacionLote(origen, fila, hoy) : IndiceProximaEvaluacion.NUNCA);
+        }
+    }
+
+    // Los IDs que lleguen mientras se drena quedan para el siguiente refresco
+    private static Set<Long> drenar(Set<Long> pendientes, Collection<Long> adicionales) {
+        Set<Long> ids = new HashSet<>(adicionales);
+        for (Iterator<Long> it = pendientes.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        return ids;
+    }
+}
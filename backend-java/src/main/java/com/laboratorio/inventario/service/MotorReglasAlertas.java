@@ -0,0 +1,378 @@
+package com.laboratorio.inventario.service;
+
+import com.laboratorio.inventario.config.ReglasAlertasProperties;
+import com.laboratorio.inventario.enums.AmbitoRegla;
+import com.laboratorio.inventario.enums.PrioridadAlerta;
+import com.laboratorio.inventario.enums.TipoAlerta;
+import com.laboratorio.inventario.service.InstantaneaInventario.EstadoInsumo;
+import com.laboratorio.inventario.service.InstantaneaInventario.EstadoLote;
+import com.laboratorio.inventario.service.InstantaneaInventario.Metrica;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Motor de reglas de alertas
+ *
+ * Las reglas declaradas en alertas.reglas.lista se compilan al arrancar a predicados sobre
+ * las filas de la instantánea en columnas (una configuración errónea impide arrancar). En cada
+ * ciclo se recorren una sola vez los insumos y los lotes evaluando todas las reglas de su
+ * ámbito; la evaluación lee directamente los arreglos de primitivos y solo crea objetos para
+ * las filas que cumplen alguna regla.
+ *
+ * De las comparaciones con métricas "días hasta" se obtiene además el próximo día en que cada
+ * fila puede cambiar de resultado sin ser modificada (ver IndiceProximaEvaluacion).
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class MotorReglasAlertas {
+
+    // Comparación "operando operador operando"; los operandos son métricas o números
+    private static final Pattern COMPARACION = Pattern.compile(
+            "^\\s*([A-Za-z_]+|-?\\d+(?:\\.\\d+)?)\\s*(<=|>=|!=|<|>|=)\\s*([A-Za-z_]+|-?\\d+(?:\\.\\d+)?)\\s*$");
+
+    // Separador de las comparaciones de una condición
+    private static final Pattern CONJUNCION = Pattern.compile("\\s+[yY]\\s+");
+
+    @Autowired
+    private ReglasAlertasProperties propiedades;
+
+    private final List<ReglaCompilada> reglasInsumo = new ArrayList<>();
+    private final List<ReglaCompilada> reglasLote = new ArrayList<>();
+
+    // Comparaciones que cambian con el paso del tiempo, por ámbito
+    private final List<CruceTemporal> crucesInsumo = new ArrayList<>();
+    private final List<CruceTemporal> crucesLote = new ArrayList<>();
+
+    /**
+     * Regla que se cumple para una fila: la alerta a generar y su prioridad.
+     * Según el ámbito de la regla, "insumo" o "lote" es null.
+     */
+    public record Coincidencia(String regla, TipoAlerta tipo, PrioridadAlerta prioridad,
+                               EstadoInsumo insumo, EstadoLote lote) {
+    }
+
+    // Valor de un operando en una fila; "hoy" en días epoch
+    @FunctionalInterface
+    private interface ValorFila {
+        double valor(InstantaneaInventario instantanea, int fila, long hoy);
+    }
+
+    @FunctionalInterface
+    private interface CondicionFila {
+        boolean cumple(InstantaneaInventario instantanea, int fila, long hoy);
+    }
+
+    private record Escalon(PrioridadAlerta prioridad, CondicionFila condicion) {
+    }
+
+    private record ReglaCompilada(String nombre, TipoAlerta tipo, CondicionFila condicion,
+                                  Escalon[] escalones, PrioridadAlerta prioridad) {
+
+        PrioridadAlerta prioridadPara(InstantaneaInventario instantanea, int fila, long hoy) {
+            for (Escalon escalon : escalones) {
+                if (escalon.condicion().cumple(instantanea, fila, hoy)) {
+                    return escalon.prioridad();
+                }
+            }
+            return prioridad;
+        }
+    }
+
+    private enum Operador {
+        MENOR("<") {
+            boolean aplicar(double a, double b) { return a < b; }
+        },
+        MENOR_IGUAL("<=") {
+            boolean aplicar(double a, double b) { return a <= b; }
+        },
+        MAYOR(">") {
+            boolean aplicar(double a, double b) { return a > b; }
+        },
+        MAYOR_IGUAL(">=") {
+            boolean aplicar(double a, double b) { return a >= b; }
+        },
+        IGUAL("=") {
+            boolean aplicar(double a, double b) { return a == b; }
+        },
+        DISTINTO("!=") {
+            // Sin dato (NaN) no se considera distinto de nada
+            boolean aplicar(double a, double b) { return !Double.isNaN(a) && !Double.isNaN(b) && a != b; }
+        };
+
+        private final String simbolo;
+
+        Operador(String simbolo) {
+            this.simbolo = simbolo;
+        }
+
+        abstract boolean aplicar(double a, double b);
+
+        static Operador desdeSimbolo(String simbolo) {
+            for (Operador operador : values()) {
+                if (operador.simbolo.equals(simbolo)) {
+                    return operador;
+                }
+            }
+            throw new IllegalArgumentException("Operador no válido: " + simbolo);
+        }
+    }
+
+    // Operando de una comparación: una métrica o una constante (metrica == null)
+    private record Operando(Metrica metrica, double constante) {
+    }
+
+    private record Comparacion(Operando izquierdo, Operador operador, Operando derecho) {
+    }
+
+    // Métrica "días hasta" comparada con un valor que no depende del día
+    private record CruceTemporal(Metrica metrica, ValorFila limite) {
+    }
+
+    @PostConstruct
+    void compilar() {
+        for (ReglasAlertasProperties.Regla regla : propiedades.getLista()) {
+            String nombre = regla.getNombre() != null ? regla.getNombre() : String.valueOf(regla.getTipo());
+            try {
+                if (regla.getTipo() == null || regla.getAmbito() == null || regla.getCondicion() == null) {
+                    throw new IllegalArgumentException("tipo, ambito y condicion son obligatorios");
+                }
+
+                List<List<Comparacion>> condiciones = new ArrayList<>();
+                ReglaCompilada compilada = compilarRegla(nombre, regla, condiciones);
+                boolean deInsumo = regla.getAmbito() == AmbitoRegla.INSUMO;
+                (deInsumo ? reglasInsumo : reglasLote).add(compilada);
+
+                for (List<Comparacion> comparaciones : condiciones) {
+                    agregarCruces(comparaciones, regla.getAmbito(), deInsumo ? crucesInsumo : crucesLote);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Regla de alertas '" + nombre + "' no válida: " + e.getMessage(), e);
+            }
+        }
+
+        System.out.println("📐 Motor de reglas de alertas: " + reglasInsumo.size() + " reglas de insumo, "
+                + reglasLote.size() + " reglas de lote");
+    }
+
+    /**
+     * Evalúa todas las reglas en una sola pasada por las filas activas de la instantánea
+     *
+     * @param hoy          Día de referencia (días epoch)
+     * @param filasInsumo  Filas de insumo a evaluar, o null para todas
+     * @param filasLote    Filas de lote a evaluar, o null para todas
+     */
+    public List<Coincidencia> evaluar(InstantaneaInventario instantanea, long hoy,
+                                      int[] filasInsumo, int[] filasLote) {
+        List<Coincidencia> coincidencias = new ArrayList<>();
+
+        int totalInsumos = filasInsumo != null ? filasInsumo.length : instantanea.getNumInsumos();
+        for (int i = 0; i < totalInsumos; i++) {
+            int fila = filasInsumo != null ? filasInsumo[i] : i;
+            if (!instantanea.insumoActivo(fila)) {
+                continue;
+            }
+            for (ReglaCompilada regla : reglasInsumo) {
+                if (regla.condicion().cumple(instantanea, fila, hoy)) {
+                    coincidencias.add(new Coincidencia(regla.nombre(), regla.tipo(),
+                            regla.prioridadPara(instantanea, fila, hoy), instantanea.estadoInsumo(fila, hoy), null));
+                }
+            }
+        }
+
+        int totalLotes = filasLote != null ? filasLote.length : instantanea.getNumLotes();
+        for (int i = 0; i < totalLotes; i++) {
+            int fila = filasLote != null ? filasLote[i] : i;
+            if (!instantanea.loteActivo(fila)) {
+                continue;
+            }
+            for (ReglaCompilada regla : reglasLote) {
+                if (regla.condicion().cumple(instantanea, fila, hoy)) {
+                    coincidencias.add(new Coincidencia(regla.nombre(), regla.tipo(),
+                            regla.prioridadPara(instantanea, fila, hoy), null, instantanea.estadoLote(fila, hoy)));
+                }
+            }
+        }
+
+        return coincidencias;
+    }
+
+    /**
+     * Prioridad que la primera regla del tipo asigna a la fila (sin comprobar su condición);
+     * se usa al crear alertas concretas desde la API
+     */
+    public PrioridadAlerta prioridadPara(TipoAlerta tipo, AmbitoRegla ambito, InstantaneaInventario instantanea,
+                                         int fila, long hoy, PrioridadAlerta porDefecto) {
+        for (ReglaCompilada regla : ambito == AmbitoRegla.INSUMO ? reglasInsumo : reglasLote) {
+            if (regla.tipo() == tipo) {
+                return regla.prioridadPara(instantanea, fila, hoy);
+            }
+        }
+        return porDefecto;
+    }
+
+    /**
+     * Primer día posterior a "hoy" en que el resultado de alguna regla de insumo puede cambiar
+     * para la fila sin que esta se modifique, o IndiceProximaEvaluacion.NUNCA
+     */
+    public long proximaEvaluacionInsumo(InstantaneaInventario instantanea, int fila, long hoy) {
+        long proxima = IndiceProximaEvaluacion.NUNCA;
+        for (CruceTemporal cruce : crucesInsumo) {
+            proxima = Math.min(proxima, proximoCruce(cruce.metrica().fechaInsumo(instantanea, fila),
+                    cruce.limite().valor(instantanea, fila, hoy), hoy));
+        }
+        return proxima;
+    }
+
+    /**
+     * Ídem para las reglas de lote (caducidad del lote y métricas de su insumo)
+     */
+    public long proximaEvaluacionLote(InstantaneaInventario instantanea, int fila, long hoy) {
+        long proxima = IndiceProximaEvaluacion.NUNCA;
+        for (CruceTemporal cruce : crucesLote) {
+            proxima = Math.min(proxima, proximoCruce(cruce.metrica().fechaLote(instantanea, fila),
+                    cruce.limite().valor(instantanea, fila, hoy), hoy));
+        }
+        return proxima;
+    }
+
+    // ==========================================
+    // COMPILACIÓN
+    // ==========================================
+
+    private static ReglaCompilada compilarRegla(String nombre, ReglasAlertasProperties.Regla regla,
+                                                List<List<Comparacion>> condiciones) {
+        AmbitoRegla ambito = regla.getAmbito();
+        List<Comparacion> condicion = analizar(regla.getCondicion(), ambito);
+        condiciones.add(condicion);
+
+        List<Escalon> escalones = new ArrayList<>();
+        for (String definicion : regla.getPrioridades()) {
+            int separador = definicion.indexOf(':');
+            if (separador < 0) {
+                throw new IllegalArgumentException("escalón no válido (se espera PRIORIDAD: condición): " + definicion);
+            }
+            PrioridadAlerta prioridad = PrioridadAlerta.desdeTexto(definicion.substring(0, separador));
+            if (prioridad == null) {
+                throw new IllegalArgumentException("escalón sin prioridad: " + definicion);
+            }
+            List<Comparacion> comparaciones = analizar(definicion.substring(separador + 1), ambito);
+            condiciones.add(comparaciones);
+            escalones.add(new Escalon(prioridad, aCondicion(comparaciones, ambito)));
+        }
+
+        return new ReglaCompilada(nombre, regla.getTipo(), aCondicion(condicion, ambito),
+                escalones.toArray(new Escalon[0]), regla.getPrioridad());
+    }
+
+    private static List<Comparacion> analizar(String texto, AmbitoRegla ambito) {
+        List<Comparacion> comparaciones = new ArrayList<>();
+
+        for (String parte : CONJUNCION.split(texto.trim())) {
+            Matcher matcher = COMPARACION.matcher(parte);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("comparación no válida: " + parte);
+            }
+            comparaciones.add(new Comparacion(
+                    analizarOperando(matcher.group(1), ambito),
+                    Operador.desdeSimbolo(matcher.group(2)),
+                    analizarOperando(matcher.group(3), ambito)));
+        }
+
+        return comparaciones;
+    }
+
+    private static Operando analizarOperando(String texto, AmbitoRegla ambito) {
+        if (!Character.isLetter(texto.charAt(0))) {
+            return new Operando(null, Double.parseDouble(texto));
+        }
+
+        Metrica metrica;
+        try {
+            metrica = Metrica.valueOf(texto.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("métrica desconocida: " + texto);
+        }
+        if (!metrica.aplicableA(ambito)) {
+            throw new IllegalArgumentException("la métrica " + metrica + " no está disponible en reglas de " + ambito);
+        }
+        return new Operando(metrica, 0);
+    }
+
+    private static CondicionFila aCondicion(List<Comparacion> comparaciones, AmbitoRegla ambito) {
+        CondicionFila condicion = null;
+
+        for (Comparacion comparacion : comparaciones) {
+            ValorFila izquierdo = aValor(comparacion.izquierdo(), ambito);
+            ValorFila derecho = aValor(comparacion.derecho(), ambito);
+            Operador operador = comparacion.operador();
+
+            CondicionFila siguiente = (instantanea, fila, hoy) -> operador.aplicar(
+                    izquierdo.valor(instantanea, fila, hoy), derecho.valor(instantanea, fila, hoy));
+            if (condicion == null) {
+                condicion = siguiente;
+            } else {
+                CondicionFila anterior = condicion;
+                condicion = (instantanea, fila, hoy) ->
+                        anterior.cumple(instantanea, fila, hoy) && siguiente.cumple(instantanea, fila, hoy);
+            }
+        }
+
+        return condicion;
+    }
+
+    private static ValorFila aValor(Operando operando, AmbitoRegla ambito) {
+        Metrica metrica = operando.metrica();
+        if (metrica == null) {
+            double constante = operando.constante();
+            return (instantanea, fila, hoy) -> constante;
+        }
+        return ambito == AmbitoRegla.INSUMO ? metrica::valorInsumo : metrica::valorLote;
+    }
+
+    // ==========================================
+    // CRUCES CON EL PASO DEL TIEMPO
+    // ==========================================
+
+    // Comparaciones entre una métrica "días hasta" y un valor que no cambia con el día
+    // (dos métricas "días hasta" bajan a la vez y su comparación no cambia)
+    private static void agregarCruces(List<Comparacion> comparaciones, AmbitoRegla ambito,
+                                      List<CruceTemporal> cruces) {
+        for (Comparacion comparacion : comparaciones) {
+            Operando izquierdo = comparacion.izquierdo();
+            Operando derecho = comparacion.derecho();
+            if (dependeDelDia(izquierdo) && !dependeDelDia(derecho)) {
+                cruces.add(new CruceTemporal(izquierdo.metrica(), aValor(derecho, ambito)));
+            } else if (dependeDelDia(derecho) && !dependeDelDia(izquierdo)) {
+                cruces.add(new CruceTemporal(derecho.metrica(), aValor(izquierdo, ambito)));
+            }
+        }
+    }
+
+    private static boolean dependeDelDia(Operando operando) {
+        return operando.metrica() != null && operando.metrica().dependeDelDia();
+    }
+
+    /**
+     * Próximo día posterior a "hoy" en que una métrica que vale "fecha - día" puede cruzar el límite.
+     * Con un límite entero c, "<=" y ">" cambian el día fecha - c y "<" y ">=" el siguiente;
+     * con uno decimal, todas el siguiente. Basta con probar esos dos días.
+     */
+    private static long proximoCruce(long fecha, double limite, long hoy) {
+        if (fecha == InstantaneaInventario.SIN_DATO || Double.isNaN(limite)) {
+            return IndiceProximaEvaluacion.NUNCA;
+        }
+        long dia = (long) Math.floor(fecha - limite);
+        if (dia > hoy) {
+            return dia;
+        }
+        return dia + 1 > hoy ? dia + 1 : IndiceProximaEvaluacion.NUNCA;
+    }
+}
@@ -0,0 +1,295 @@
+package com.laboratorio.inventario.service;
+
+import com.laboratorio.inventario.dto.ResultadoLimpiezaDTO;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Retención de alertas leídas antiguas
+ *
+ * Borra por rangos de ID acotados, cada uno en su propia transacción corta y con una pausa
+ * entre bloques, para no retener bloqueos ni inflar el undo log con un único DELETE enorme.
+ * Opcionalmente copia cada bloque a una tabla de archivo mensual (alertas_archivo_AAAAMM)
+ * que, pasada la retención del archivo, se descarta con un DROP TABLE en tiempo constante.
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class RetencionAlertas {
+
+    private static final String PREFIJO_ARCHIVO = "alertas_archivo_";
+    private static final Pattern TABLA_ARCHIVO = Pattern.compile("alertas_archivo_(\\d{6})");
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Columnas archivadas. Cada tabla mensual copia la estructura de alertas del momento en que se
+    // creó (CREATE TABLE ... LIKE): a las más antiguas se les añaden las columnas que les falten
+    private static final List<String> COLUMNAS_ARCHIVO = List.of(
+            "id", "tipo", "prioridad", "titulo", "mensaje", "insumo_id", "lote_id", "leida", "fecha_creacion",
+            "fecha_lectura", "usuario_destinatario", "datos_adicionales", "clave_dedup", "nivel_escalado");
+
+    private static final String COLUMNAS = String.join(", ", COLUMNAS_ARCHIVO);
+
+    private static final String SQL_COLUMNAS_TABLA =
+            "SELECT COLUMN_NAME, COLUMN_TYPE FROM information_schema.COLUMNS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+
+    private static final String CONDICION_RETENCION = "leida = TRUE AND fecha_creacion < ?";
+
+    private static final String CONDICION_BLOQUE = "id >= ? AND id < ? AND " + CONDICION_RETENCION;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ContadoresAlertas contadoresAlertas;
+
+    // Ancho de cada rango de IDs borrado en una transacción
+    @Value("${alertas.retencion.tamano-bloque:1000}")
+    private int tamanoBloque;
+
+    // Pausa entre bloques para dejar pasar al resto de escrituras
+    @Value("${alertas.retencion.pausa-ms:200}")
+    private long pausaMs;
+
+    // Copiar las alertas a tablas mensuales antes de borrarlas
+    @Value("${alertas.retencion.archivar:false}")
+    private boolean archivar;
+
+    // Meses que se conserva cada tabla de archivo
+    @Value("${alertas.retencion.meses-archivo:12}")
+    private int mesesArchivo;
+
+    // Una transacción nueva por bloque, aunque el llamador tenga una abierta
+    private TransactionTemplate transaccionBloque;
+
+    private final Set<String> tablasArchivoCreadas = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean enEjecucion = new AtomicBoolean(false);
+
+    @PostConstruct
+    void inicializar() {
+        transaccionBloque = new TransactionTemplate(transactionManager);
+        transaccionBloque.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Elimina (y opcionalmente archiva) las alertas leídas anteriores a la fecha límite
+     *
+     * @param fechaLimite Se conservan las alertas creadas desde esta fecha
+     * @return Filas y bytes liberados en la ejecución
+     * @throws IllegalStateException si ya hay una limpieza en curso
+     */
+    public ResultadoLimpiezaDTO limpiar(LocalDateTime fechaLimite) {
+        if (!enEjecucion.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una limpieza de alertas en curso");
+        }
+
+        long inicio = System.currentTimeMillis();
+        ResultadoLimpiezaDTO resultado = new ResultadoLimpiezaDTO();
+        resultado.setFechaLimite(fechaLimite);
+        resultado.setCompletada(true);
+
+        try {
+            long tamanoFila = tamanoMedioFila();
+            borrarPorBloques(fechaLimite, resultado);
+            resultado.setBytesLiberadosEstimados(resultado.getFilasEliminadas() * tamanoFila);
+
+            eliminarArchivosCaducados(resultado);
+
+            if (resultado.getFilasEliminadas() > 0) {
+                contadoresAlertas.reconciliar();
+            }
+        } finally {
+            enEjecucion.set(false);
+        }
+
+        resultado.setDuracionMs(System.currentTimeMillis() - inicio);
+        return resultado;
+    }
+
+    // ==========================================
+    // BORRADO POR BLOQUES
+    // ==========================================
+
+    private void borrarPorBloques(LocalDateTime fechaLimite, ResultadoLimpiezaDTO resultado) {
+        Timestamp limite = Timestamp.valueOf(fechaLimite);
+
+        Map<String, Object> rango = jdbcTemplate.queryForMap(
+                "SELECT MIN(id) AS minimo, MAX(id) AS maximo FROM alertas WHERE " + CONDICION_RETENCION, limite);
+        if (rango.get("minimo") == null) {
+            return;
+        }
+        long minimo = ((Number) rango.get("minimo")).longValue();
+        long maximo = ((Number) rango.get("maximo")).longValue();
+
+        for (long inicioBloque = minimo; inicioBloque <= maximo; inicioBloque += tamanoBloque) {
+            long desde = inicioBloque;
+            long hasta = inicioBloque + tamanoBloque;
+
+            // DDL fuera de la transacción del bloque: en MySQL un CREATE TABLE confirma implícitamente
+            List<YearMonth> meses = archivar ? prepararArchivo(desde, hasta, limite) : List.of();
+
+            long[] filas = transaccionBloque.execute(status -> procesarBloque(desde, hasta, limite, meses));
+            resultado.setBloques(resultado.getBloques() + 1);
+            resultado.setFilasArchivadas(resultado.getFilasArchivadas() + filas[0]);
+            resultado.setFilasEliminadas(resultado.getFilasEliminadas() + filas[1]);
+
+            // Los rangos vacíos (IDs de alertas no leídas o recientes) no necesitan pausa
+            if (filas[1] > 0 && hasta <= maximo && !pausar()) {
+                resultado.setCompletada(false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return {filas archivadas, filas eliminadas}
+     */
+    private long[] procesarBloque(long desde, long hasta, Timestamp limite, List<YearMonth> meses) {
+        long archivadas = 0;
+        for (YearMonth mes : meses) {
+            archivadas += archivarMes(desde, hasta, limite, mes);
+        }
+        long eliminadas = jdbcTemplate.update(
+                "DELETE FROM alertas WHERE " + CONDICION_BLOQUE, desde, hasta, limite);
+        return new long[] { archivadas, eliminadas };
+    }
+
+    private boolean pausar() {
+        if (pausaMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pausaMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // ==========================================
+    // ARCHIVO MENSUAL
+    // ==========================================
+
+    /**
+     * Meses presentes en el bloque, con su tabla de archivo ya creada
+     */
+    private List<YearMonth> prepararArchivo(long desde, long hasta, Timestamp limite) {
+        // Los IDs crecen con la fecha: casi siempre un bloque cae dentro de un solo mes
+        List<YearMonth> meses = jdbcTemplate.queryForList(
+                "SELECT DISTINCT DATE_FORMAT(fecha_creacion, '%Y%m') FROM alertas WHERE " + CONDICION_BLOQUE,
+                String.class, desde, hasta, limite)
+                .stream()
+                .map(mes -> YearMonth.parse(mes, FORMATO_MES))
+                .collect(Collectors.toList());
+
+        for (YearMonth mes : meses) {
+            String tabla = tablaArchivo(mes);
+            if (tablasArchivoCreadas.add(tabla)) {
+                // LIKE copia columnas e índices, pero no las claves foráneas hacia insumos y lotes
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + tabla + " LIKE alertas");
+                completarColumnas(tabla);
+            }
+        }
+        return meses;
+    }
+
+    /**
+     * Añade a una tabla de archivo creada con una versión anterior de alertas las columnas
+     * archivadas que le falten (con el tipo actual y admitiendo NULL para las filas ya copiadas)
+     */
+    private void completarColumnas(String tabla) {
+        Map<String, String> tiposAlertas = columnasDe("alertas");
+        Map<String, String> columnasArchivo = columnasDe(tabla);
+        for (String columna : COLUMNAS_ARCHIVO) {
+            if (!columnasArchivo.containsKey(columna) && tiposAlertas.containsKey(columna)) {
+                jdbcTemplate.execute("ALTER TABLE " + tabla + " ADD COLUMN " + columna + " " + tiposAlertas.get(columna) + " NULL");
+                System.out.println("🔧 Columna " + columna + " añadida a " + tabla);
+            }
+        }
+    }
+
+    private Map<String, String> columnasDe(String tabla) {
+        return jdbcTemplate.queryForList(SQL_COLUMNAS_TABLA, tabla).stream()
+                .collect(Collectors.toMap(
+                        fila -> ((String) fila.get("COLUMN_NAME")).toLowerCase(),
+                        fila -> (String) fila.get("COLUMN_TYPE")));
+    }
+
+    private long archivarMes(long desde, long hasta, Timestamp limite, YearMonth mes) {
+        // INSERT IGNORE: reintentar un bloque que falló a medias no duplica filas
+        return jdbcTemplate.update(
+                "INSERT IGNORE INTO " + tablaArchivo(mes) + " (" + COLUMNAS + ") " +
+                "SELECT " + COLUMNAS + " FROM alertas WHERE " + CONDICION_BLOQUE +
+                " AND fecha_creacion >= ? AND fecha_creacion < ?",
+                desde, hasta, limite,
+                Timestamp.valueOf(mes.atDay(1).atStartOfDay()),
+                Timestamp.valueOf(mes.plusMonths(1).atDay(1).atStartOfDay()));
+    }
+
+    private static String tablaArchivo(YearMonth mes) {
+        return PREFIJO_ARCHIVO + mes.format(FORMATO_MES);
+    }
+
+    private void eliminarArchivosCaducados(ResultadoLimpiezaDTO resultado) {
+        YearMonth primerMesConservado = YearMonth.now().minusMonths(mesesArchivo);
+
+        List<Map<String, Object>> tablas = jdbcTemplate.queryForList(
+                "SELECT TABLE_NAME AS nombre, COALESCE(DATA_LENGTH, 0) + COALESCE(INDEX_LENGTH, 0) AS bytes " +
+                "FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME LIKE 'alertas\\_archivo\\_%'");
+
+        for (Map<String, Object> tabla : tablas) {
+            String nombre = (String) tabla.get("nombre");
+            Matcher matcher = TABLA_ARCHIVO.matcher(nombre);
+            if (!matcher.matches()) {
+                continue;
+            }
+            if (YearMonth.parse(matcher.group(1), FORMATO_MES).isBefore(primerMesConservado)) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + nombre);
+                tablasArchivoCreadas.remove(nombre);
+                resultado.getTablasArchivoEliminadas().add(nombre);
+                resultado.setBytesArchivoEliminados(
+                        resultado.getBytesArchivoEliminados() + ((Number) tabla.get("bytes")).longValue());
+            }
+        }
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    /**
+     * Tamaño medio de fila según las estadísticas de InnoDB (aproximado).
+     * InnoDB reutiliza las páginas liberadas; devolver el espacio al disco requiere OPTIMIZE TABLE.
+     */
+    private long tamanoMedioFila() {
+        List<Long> valores = jdbcTemplate.queryForList(
+                "SELECT COALESCE(AVG_ROW_LENGTH, 0) FROM information_schema.TABLES " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'alertas'", Long.class);
+        return valores.isEmpty() ? 0 : valores.get(0);
+    }
+}
@@ -0,0 +1,117 @@
+package com.laboratorio.inventario.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registro de las suscripciones a los temas de alertas (/topic/alertas/...)
+ *
+ * DespachadorAlertas lo consulta para no construir ni serializar tramas de temas
+ * (prioridad, insumo, categoría) sin ningún suscriptor, que son la mayoría.
+ * Una suscripción con patrón (por ejemplo /topic/alertas/insumo/*) hace que se
+ * consideren suscritos todos los temas.
+ *
+ * @author José Aníbal Cabrera Rodas
+ * @version 1.0
+ */
+@Component
+public class SuscripcionesAlertas {
+
+    private static final String PREFIJO_TEMAS = DespachadorAlertas.DESTINO_GENERAL + "/";
+
+    // Destino de cada suscripción, por sesión e ID de suscripción
+    private final Map<String, Map<String, String>> porSesion = new HashMap<>();
+
+    // Suscripciones por destino exacto
+    private final Map<String, Integer> porDestino = new HashMap<>();
+
+    private int suscripcionesConPatron;
+
+    /**
+     * Indica si alguna sesión recibiría una trama enviada al tema
+     */
+    public synchronized boolean tieneSuscriptores(String destino) {
+        return suscripcionesConPatron > 0 || porDestino.containsKey(destino);
+    }
+
+    public synchronized int getSuscripcionesATemas() {
+        return porDestino.values().stream().mapToInt(Integer::intValue).sum() + suscripcionesConPatron;
+    }
+
+    // ==========================================
+    // EVENTOS DE SESIÓN STOMP
+    // ==========================================
+
+    @EventListener
+    public synchronized void onSuscripcion(SessionSubscribeEvent evento) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(evento.getMessage());
+        String destino = accessor.getDestination();
+        if (destino == null || !destino.startsWith(PREFIJO_TEMAS)
+                || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+
+        String anterior = porSesion.computeIfAbsent(accessor.getSessionId(), sesion -> new HashMap<>())
+                .put(accessor.getSubscriptionId(), destino);
+        if (anterior != null) {
+            quitar(anterior);
+        }
+        agregar(destino);
+    }
+
+    @EventListener
+    public synchronized void onCancelacion(SessionUnsubscribeEvent evento) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(evento.getMessage());
+        Map<String, String> suscripciones = porSesion.get(accessor.getSessionId());
+        if (suscripciones == null) {
+            return;
+        }
+
+        String destino = suscripciones.remove(accessor.getSubscriptionId());
+        if (destino != null) {
+            quitar(destino);
+        }
+        if (suscripciones.isEmpty()) {
+            porSesion.remove(accessor.getSessionId());
+        }
+    }
+
+    @EventListener
+    public synchronized void onDesconexion(SessionDisconnectEvent evento) {
+        Map<String, String> suscripciones = porSesion.remove(evento.getSessionId());
+        if (suscripciones != null) {
+            suscripciones.values().forEach(this::quitar);
+        }
+    }
+
+    // ==========================================
+    // MÉTODOS PRIVADOS
+    // ==========================================
+
+    private static boolean esPatron(String destino) {
+        return destino.indexOf('*') >= 0 || destino.indexOf('{') >= 0;
+    }
+
+    private void agregar(String destino) {
+        if (esPatron(destino)) {
+            suscripcionesConPatron++;
+        } else {
+            porDestino.merge(destino, 1, Integer::sum);
+        }
+    }
+
+    private void quitar(String destino) {
+        if (esPatron(destino)) {
+            suscripcionesConPatron--;
+        } else {
+            porDestino.computeIfPresent(destino, (clave, total) -> total > 1 ? total - 1 : null);
+        }
+    }
+}
@@ -1,26 +1,66 @@
 package com.laboratorio.inventario.service.impl;
 
-import com.laboratorio.inventario.controller.AlertaWebSocketController;
 import com.laboratorio.inventario.dto.AlertaDTO;
+import com.laboratorio.inventario.dto.OperacionMasivaAlertasDTO;
+import com.laboratorio.inventario.dto.PaginaAlertasDTO;
+import com.laboratorio.inventario.dto.ReanudacionAlertasDTO;
+import com.laboratorio.inventario.dto.ResultadoLimpiezaDTO;
+import com.laboratorio.inventario.dto.SolicitudReanudacionDTO;
 import com.laboratorio.inventario.entity.Alerta;
+import com.laboratorio.inventario.entity.AlertaDestinatario;
 import com.laboratorio.inventario.entity.Insumo;
 import com.laboratorio.inventario.entity.Lote;
+import com.laboratorio.inventario.event.AlertaPublicadaEvent;
+import com.laboratorio.inventario.enums.AmbitoRegla;
+import com.laboratorio.inventario.enums.PrioridadAlerta;
+import com.laboratorio.inventario.enums.TipoAlerta;
+import com.laboratorio.inventario.repository.AlertaDestinatarioRepository;
 import com.laboratorio.inventario.repository.AlertaRepository;
 import com.laboratorio.inventario.repository.InsumoRepository;
 import com.laboratorio.inventario.repository.LoteRepository;
+import com.laboratorio.inventario.scheduler.EscaladoAlertas;
 import com.laboratorio.inventario.service.AlertaService;
-import com.laboratorio.inventario.service.ConsumoService;
+import com.laboratorio.inventario.service.CoalescedorAlertas;
+import com.laboratorio.inventario.service.ContadoresAlertas;
+import com.laboratorio.inventario.service.DespachadorAlertas;
+import com.laboratorio.inventario.service.InstantaneaInventario;
+import com.laboratorio.inventario.service.InstantaneaInventario.EstadoInsumo;
+import com.laboratorio.inventario.service.InstantaneaInventario.EstadoLote;
+import com.laboratorio.inventario.service.InventarioEnMemoria;
+import com.laboratorio.inventario.service.MotorReglasAlertas;
+import com.laboratorio.inventario.service.RetencionAlertas;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,12 +77,70 @@ public class AlertaServiceImpl implements AlertaService {
     private LoteRepository loteRepository;
 
     @Autowired
-    private ConsumoService consumoService;
+    private MotorReglasAlertas motorReglas;
 
-    // ⭐ NUEVO: Inyección del controlador WebSocket con @Lazy para evitar dependencia circular
     @Autowired
-    @Lazy
-    private AlertaWebSocketController webSocketController;
+    private InventarioEnMemoria inventarioEnMemoria;
+
+    // Las notificaciones WebSocket se publican como eventos y se envían después del commit
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CoalescedorAlertas coalescedorAlertas;
+
+    @Autowired
+    private ContadoresAlertas contadoresAlertas;
+
+    @Autowired
+    private RetencionAlertas retencionAlertas;
+
+    @Autowired
+    private AlertaDestinatarioRepository alertaDestinatarioRepository;
+
+    @Autowired
+    private EscaladoAlertas escaladoAlertas;
+
+    @Autowired
+    private DespachadorAlertas despachadorAlertas;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Número de candidatos procesados por transacción en el ciclo automático
+    @Value("${alertas.ciclo.tamano-bloque:200}")
+    private int tamanoBloque;
+
+    // Usuarios que reciben en su bandeja las alertas sin destinatario (separados por comas)
+    @Value("${alertas.bandejas.usuarios:}")
+    private String usuariosBandejaConfigurados;
+
+    // Alertas máximas en una reanudación resuelta con la base de datos
+    @Value("${alertas.websocket.reanudar-max:500}")
+    private int maxReanudacion;
+
+    private List<String> usuariosBandeja;
+
+    // Tamaño máximo de página en los listados
+    private static final int TAMANO_MAXIMO_PAGINA = 200;
+
+    // Posición inicial del cursor (posterior a cualquier alerta; DATETIME admite hasta 9999)
+    private static final LocalDateTime FECHA_CURSOR_INICIAL = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    @PostConstruct
+    void inicializar() {
+        usuariosBandeja = Arrays.stream(usuariosBandejaConfigurados.split(","))
+                .map(String::trim)
+                .filter(usuario -> !usuario.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
 
     // ==========================================
     // MÉTODOS CRUD BÁSICOS
@@ -50,39 +148,42 @@ public class AlertaServiceImpl implements AlertaService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<AlertaDTO> listarTodas() {
-        return alertaRepository.findAll()
-                .stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+    public PaginaAlertasDTO listarTodas(String cursor, int tamano) {
+        return paginar(cursor, tamano, alertaRepository::findPaginaDesde);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<AlertaDTO> listarNoLeidas() {
-        return alertaRepository.findByLeidaFalseOrderByFechaCreacionDesc()
-                .stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+        return alertaRepository.findDTONoLeidas();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaAlertasDTO listarNoLeidas(String cursor, int tamano) {
+        return paginar(cursor, tamano, alertaRepository::findPaginaNoLeidasDesde);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Optional<AlertaDTO> obtenerPorId(Long id) {
-        return alertaRepository.findById(id)
-                .map(this::convertirADTO);
+        return alertaRepository.findDTOById(id);
     }
 
     @Override
     public AlertaDTO marcarComoLeida(Long id) {
         return alertaRepository.findById(id)
                 .map(alerta -> {
+                    if (!Boolean.TRUE.equals(alerta.getLeida())) {
+                        contadoresAlertas.registrarLeida(alerta);
+                        escaladoAlertas.cancelar(List.of(id));
+                    }
                     alerta.marcarComoLeida();
                     alertaRepository.save(alerta);
                     AlertaDTO dto = convertirADTO(alerta);
                     
-                    // ⭐ NOTIFICA POR WEBSOCKET QUE SE MARCÓ COMO LEÍDA
-                    webSocketController.enviarAlerta(dto);
+                    // ⭐ NOTIFICA POR WEBSOCKET QUE SE MARCÓ COMO LEÍDA (después del commit)
+                    eventPublisher.publishEvent(AlertaPublicadaEvent.deAlerta(dto, true, List.of()));
                     
                     return dto;
                 })
@@ -91,24 +192,214 @@ public class AlertaServiceImpl implements AlertaService {
 
     @Override
     public void eliminar(Long id) {
-        alertaRepository.deleteById(id);
+        alertaRepository.findById(id).ifPresent(alerta -> {
+            // Las entradas de bandeja se borran en cascada: se descuentan las que seguían sin leer
+            List<String> usuariosSinLeer = alertaDestinatarioRepository.findUsuariosConAlertaNoLeida(id);
+            alertaRepository.delete(alerta);
+            contadoresAlertas.registrarEliminada(alerta);
+            escaladoAlertas.cancelar(List.of(id));
+            usuariosSinLeer.forEach(usuario -> contadoresAlertas.registrarLeidasEnBandeja(usuario, 1));
+        });
+    }
+
+    // ==========================================
+    // OPERACIONES MASIVAS
+    // ==========================================
+
+    @Override
+    public int marcarComoLeidas(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        int afectadas = alertaRepository.marcarLeidasPorIds(ids, LocalDateTime.now());
+        escaladoAlertas.cancelar(ids);
+        return notificarOperacionMasiva("MARCAR_LEIDAS", ids, null, null, null, afectadas);
+    }
+
+    @Override
+    public int marcarComoLeidasPorFiltro(String tipo, String prioridad, LocalDateTime antesDe) {
+        TipoAlerta tipoAlerta = TipoAlerta.desdeTexto(tipo);
+        PrioridadAlerta prioridadAlerta = PrioridadAlerta.desdeTexto(prioridad);
+        // Las que tienen escalado pendiente se leen antes: el UPDATE masivo no devuelve los IDs
+        List<Long> conEscalado = alertaRepository.findIdsPendientesEscaladoPorFiltro(tipoAlerta, prioridadAlerta, antesDe);
+        int afectadas = alertaRepository.marcarLeidasPorFiltro(tipoAlerta, prioridadAlerta, antesDe, LocalDateTime.now());
+        escaladoAlertas.cancelar(conEscalado);
+        return notificarOperacionMasiva("MARCAR_LEIDAS", null, tipoAlerta, prioridadAlerta, antesDe, afectadas);
+    }
+
+    @Override
+    public int eliminarVarias(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        int afectadas = alertaRepository.eliminarPorIds(ids);
+        escaladoAlertas.cancelar(ids);
+        return notificarOperacionMasiva("ELIMINAR", ids, null, null, null, afectadas);
+    }
+
+    @Override
+    public int eliminarPorFiltro(String tipo, String prioridad, LocalDateTime antesDe) {
+        TipoAlerta tipoAlerta = TipoAlerta.desdeTexto(tipo);
+        PrioridadAlerta prioridadAlerta = PrioridadAlerta.desdeTexto(prioridad);
+        // Un filtro vacío borraría todas las alertas
+        if (tipoAlerta == null && prioridadAlerta == null && antesDe == null) {
+            throw new IllegalArgumentException("Indique al menos un filtro (tipo, prioridad o antesDe) para eliminar");
+        }
+        List<Long> conEscalado = alertaRepository.findIdsPendientesEscaladoPorFiltro(tipoAlerta, prioridadAlerta, antesDe);
+        int afectadas = alertaRepository.eliminarPorFiltro(tipoAlerta, prioridadAlerta, antesDe);
+        escaladoAlertas.cancelar(conEscalado);
+        return notificarOperacionMasiva("ELIMINAR", null, tipoAlerta, prioridadAlerta, antesDe, afectadas);
+    }
+
+    /**
+     * Envía un único mensaje WebSocket con el criterio de la operación (después del commit)
+     * y recalcula los contadores al confirmar
+     */
+    private int notificarOperacionMasiva(String operacion, List<Long> ids, TipoAlerta tipo, PrioridadAlerta prioridad,
+                                         LocalDateTime antesDe, int afectadas) {
+        if (afectadas > 0) {
+            contadoresAlertas.reconciliarAlConfirmar();
+            eventPublisher.publishEvent(AlertaPublicadaEvent.deOperacionMasiva(new OperacionMasivaAlertasDTO(
+                    operacion, ids,
+                    tipo != null ? tipo.name() : null,
+                    prioridad != null ? prioridad.name() : null,
+                    antesDe, afectadas, LocalDateTime.now())));
+        }
+        System.out.println("📋 Operación masiva " + operacion + ": " + afectadas + " alertas");
+        return afectadas;
     }
 
     // ==========================================
     // CREAR ALERTAS ESPECÍFICAS
     // ==========================================
 
+    // La prioridad de las alertas específicas la asignan las reglas configuradas de su tipo
+
     @Override
     public AlertaDTO crearAlertaStockBajo(Insumo insumo) {
-        // Verificar si ya existe una alerta similar reciente (últimas 24 horas)
-        LocalDateTime hace24h = LocalDateTime.now().minusHours(24);
-        if (alertaRepository.existeAlertaReciente("STOCK_BAJO", insumo.getId(), hace24h)) {
-            return null; // No crear duplicado
+        // Devuelve null si ya existe una alerta igual hoy (no crea duplicado)
+        PrioridadAlerta prioridad = prioridadDe(TipoAlerta.STOCK_BAJO, insumo, Double.NaN, PrioridadAlerta.ALTA);
+        return insertarYEnviar(construirAlertaStockBajo(insumo, prioridad));
+    }
+
+    @Override
+    public AlertaDTO crearAlertaCaducidad(Lote lote, int diasRestantes) {
+        // Devuelve null si ya existe una alerta igual hoy (no crea duplicado)
+        PrioridadAlerta prioridad = prioridadDe(TipoAlerta.CADUCIDAD, lote, diasRestantes, PrioridadAlerta.MEDIA);
+        return insertarYEnviar(construirAlertaCaducidad(lote, diasRestantes, prioridad));
+    }
+
+    @Override
+    public AlertaDTO crearAlertaVencido(Lote lote) {
+        // Devuelve null si ya existe una alerta igual hoy (no crea duplicado)
+        long diasRestantes = ChronoUnit.DAYS.between(LocalDate.now(), lote.getFechaCaducidad());
+        PrioridadAlerta prioridad = prioridadDe(TipoAlerta.VENCIDO, lote, diasRestantes, PrioridadAlerta.CRITICA);
+        return insertarYEnviar(construirAlertaVencido(lote, prioridad));
+    }
+
+    @Override
+    public AlertaDTO crearAlertaAgotamientoProximo(Insumo insumo, int diasEstimados) {
+        // Devuelve null si ya existe una alerta igual hoy (no crea duplicado)
+        PrioridadAlerta prioridad = prioridadDe(
+                TipoAlerta.AGOTAMIENTO_PROXIMO, insumo, diasEstimados, PrioridadAlerta.MEDIA);
+        return insertarYEnviar(construirAlertaAgotamientoProximo(insumo, diasEstimados, prioridad));
+    }
+
+    @Override
+    public AlertaDTO crearAlertaPersonalizada(String tipo, String prioridad, String titulo, 
+                                             String mensaje, Long insumoId, Long loteId,
+                                             String usuarioDestinatario) {
+        // Sin clave de duplicados: las alertas personalizadas nunca se descartan
+        Alerta alerta = nuevaAlerta(
+                Objects.requireNonNullElse(TipoAlerta.desdeTexto(tipo), TipoAlerta.OTRO),
+                Objects.requireNonNullElse(PrioridadAlerta.desdeTexto(prioridad), PrioridadAlerta.MEDIA));
+        alerta.setTitulo(titulo);
+        alerta.setMensaje(mensaje);
+        if (usuarioDestinatario != null && !usuarioDestinatario.isBlank()) {
+            alerta.setUsuarioDestinatario(usuarioDestinatario.trim());
+        }
+
+        if (insumoId != null) {
+            insumoRepository.findById(insumoId).ifPresent(alerta::setInsumo);
+        }
+        if (loteId != null) {
+            loteRepository.findById(loteId).ifPresent(alerta::setLote);
         }
 
+        return insertarYEnviar(alerta);
+    }
+
+    // ==========================================
+    // CONSTRUCCIÓN DE ALERTAS (EN MEMORIA)
+    // ==========================================
+
+    private Alerta nuevaAlerta(TipoAlerta tipo, PrioridadAlerta prioridad) {
         Alerta alerta = new Alerta();
-        alerta.setTipo("STOCK_BAJO");
-        alerta.setPrioridad("ALTA");
+        alerta.setTipo(tipo);
+        alerta.setPrioridad(prioridad);
+        alerta.setLeida(false);
+        alerta.setFechaCreacion(LocalDateTime.now());
+        return alerta;
+    }
+
+    /**
+     * Alerta de una regla que se cumple en la instantánea. Los tipos conocidos usan su
+     * mensaje propio; el resto, un mensaje genérico con la regla en los datos adicionales.
+     * Insumo y lote son objetos ligeros (sin cargar de la base de datos, salvo el insumo de un
+     * lote que no esté en la instantánea) con los campos que necesitan la alerta y su DTO.
+     */
+    private Alerta construirAlerta(MotorReglasAlertas.Coincidencia coincidencia) {
+        PrioridadAlerta prioridad = coincidencia.prioridad();
+
+        if (coincidencia.lote() != null) {
+            EstadoLote estado = coincidencia.lote();
+            Lote lote = loteDe(estado);
+            switch (coincidencia.tipo()) {
+                case CADUCIDAD:
+                    return construirAlertaCaducidad(lote, (int) estado.diasHastaCaducidad(), prioridad);
+                case VENCIDO:
+                    return construirAlertaVencido(lote, prioridad);
+                default:
+                    return construirAlertaDeRegla(coincidencia, lote.getInsumo(), lote);
+            }
+        }
+
+        EstadoInsumo estado = coincidencia.insumo();
+        Insumo insumo = insumoDe(estado);
+        switch (coincidencia.tipo()) {
+            case STOCK_BAJO:
+                return construirAlertaStockBajo(insumo, prioridad);
+            case AGOTAMIENTO_PROXIMO:
+                if (!Double.isNaN(estado.diasHastaAgotamiento())) {
+                    return construirAlertaAgotamientoProximo(insumo, (int) estado.diasHastaAgotamiento(), prioridad);
+                }
+                return construirAlertaDeRegla(coincidencia, insumo, null);
+            default:
+                return construirAlertaDeRegla(coincidencia, insumo, null);
+        }
+    }
+
+    private Alerta construirAlertaDeRegla(MotorReglasAlertas.Coincidencia coincidencia, Insumo insumo, Lote lote) {
+        TipoAlerta tipo = coincidencia.tipo();
+        Alerta alerta = nuevaAlerta(tipo, coincidencia.prioridad());
+        if (lote != null) {
+            alerta.setTitulo(tipo.getNombre() + ": lote " + lote.getNumeroLote());
+            alerta.setMensaje(String.format("%s. Lote '%s' del insumo '%s' (regla '%s').",
+                    tipo.getDescripcion(), lote.getNumeroLote(), insumo.getNombre(), coincidencia.regla()));
+        } else {
+            alerta.setTitulo(tipo.getNombre() + ": " + insumo.getNombre());
+            alerta.setMensaje(String.format("%s. Insumo '%s' (regla '%s').",
+                    tipo.getDescripcion(), insumo.getNombre(), coincidencia.regla()));
+        }
+        alerta.setInsumo(insumo);
+        alerta.setLote(lote);
+        alerta.setDatosAdicionales(aJson(Map.of("regla", coincidencia.regla())));
+        alerta.asignarClaveDedup();
+        return alerta;
+    }
+
+    private Alerta construirAlertaStockBajo(Insumo insumo, PrioridadAlerta prioridad) {
+        Alerta alerta = nuevaAlerta(TipoAlerta.STOCK_BAJO, prioridad);
         alerta.setTitulo("Stock Bajo: " + insumo.getNombre());
         alerta.setMensaje(String.format(
                 "El insumo '%s' está por debajo del nivel mínimo. Cantidad actual: %.2f, Mínimo requerido: %.2f",
@@ -117,38 +408,12 @@ public class AlertaServiceImpl implements AlertaService {
                 insumo.getCantidadMinima()
         ));
         alerta.setInsumo(insumo);
-        alerta.setLeida(false);
-
-        Alerta guardada = alertaRepository.save(alerta);
-        AlertaDTO dto = convertirADTO(guardada);
-        
-        // ⭐ ENVÍA POR WEBSOCKET EN TIEMPO REAL
-        webSocketController.enviarAlerta(dto);
-        System.out.println("✅ Alerta Stock Bajo creada y enviada: " + insumo.getNombre());
-        
-        return dto;
+        alerta.asignarClaveDedup();
+        return alerta;
     }
 
-    @Override
-    public AlertaDTO crearAlertaCaducidad(Lote lote, int diasRestantes) {
-        // Verificar si ya existe una alerta similar reciente (últimas 24 horas)
-        LocalDateTime hace24h = LocalDateTime.now().minusHours(24);
-        if (alertaRepository.existeAlertaRecienteLote("CADUCIDAD", lote.getId(), hace24h)) {
-            return null; // No crear duplicado
-        }
-        
-        String prioridad;
-        if (diasRestantes <= 7) {
-            prioridad = "CRITICA";
-        } else if (diasRestantes <= 15) {
-            prioridad = "ALTA";
-        } else {
-            prioridad = "MEDIA";
-        }
-
-        Alerta alerta = new Alerta();
-        alerta.setTipo("CADUCIDAD");
-        alerta.setPrioridad(prioridad);
+    private Alerta construirAlertaCaducidad(Lote lote, int diasRestantes, PrioridadAlerta prioridad) {
+        Alerta alerta = nuevaAlerta(TipoAlerta.CADUCIDAD, prioridad);
         alerta.setTitulo("Lote próximo a vencer: " + lote.getNumeroLote());
         alerta.setMensaje(String.format(
                 "El lote '%s' del insumo '%s' vence en %d días. Fecha de caducidad: %s",
@@ -159,29 +424,12 @@ public class AlertaServiceImpl implements AlertaService {
         ));
         alerta.setInsumo(lote.getInsumo());
         alerta.setLote(lote);
-        alerta.setLeida(false);
-
-        Alerta guardada = alertaRepository.save(alerta);
-        AlertaDTO dto = convertirADTO(guardada);
-        
-        // ⭐ ENVÍA POR WEBSOCKET EN TIEMPO REAL
-        webSocketController.enviarAlerta(dto);
-        System.out.println("⏰ Alerta Caducidad creada y enviada: " + lote.getNumeroLote());
-        
-        return dto;
+        alerta.asignarClaveDedup();
+        return alerta;
     }
 
-    @Override
-    public AlertaDTO crearAlertaVencido(Lote lote) {
-        // Verificar si ya existe una alerta similar reciente (últimas 24 horas)
-        LocalDateTime hace24h = LocalDateTime.now().minusHours(24);
-        if (alertaRepository.existeAlertaRecienteLote("VENCIDO", lote.getId(), hace24h)) {
-            return null; // No crear duplicado
-        }
-        
-        Alerta alerta = new Alerta();
-        alerta.setTipo("VENCIDO");
-        alerta.setPrioridad("CRITICA");
+    private Alerta construirAlertaVencido(Lote lote, PrioridadAlerta prioridad) {
+        Alerta alerta = nuevaAlerta(TipoAlerta.VENCIDO, prioridad);
         alerta.setTitulo("Lote vencido: " + lote.getNumeroLote());
         alerta.setMensaje(String.format(
                 "El lote '%s' del insumo '%s' ha vencido. Fecha de caducidad: %s. Se recomienda retirar del inventario.",
@@ -191,38 +439,12 @@ public class AlertaServiceImpl implements AlertaService {
         ));
         alerta.setInsumo(lote.getInsumo());
         alerta.setLote(lote);
-        alerta.setLeida(false);
-
-        Alerta guardada = alertaRepository.save(alerta);
-        AlertaDTO dto = convertirADTO(guardada);
-        
-        // ⭐ ENVÍA POR WEBSOCKET EN TIEMPO REAL
-        webSocketController.enviarAlerta(dto);
-        System.out.println("❌ Alerta Vencido creada y enviada: " + lote.getNumeroLote());
-        
-        return dto;
+        alerta.asignarClaveDedup();
+        return alerta;
     }
 
-    @Override
-    public AlertaDTO crearAlertaAgotamientoProximo(Insumo insumo, int diasEstimados) {
-        // Verificar si ya existe una alerta similar reciente (últimas 24 horas)
-        LocalDateTime hace24h = LocalDateTime.now().minusHours(24);
-        if (alertaRepository.existeAlertaReciente("AGOTAMIENTO_PROXIMO", insumo.getId(), hace24h)) {
-            return null; // No crear duplicado
-        }
-        
-        String prioridad;
-        if (diasEstimados <= 3) {
-            prioridad = "CRITICA";
-        } else if (diasEstimados <= 7) {
-            prioridad = "ALTA";
-        } else {
-            prioridad = "MEDIA";
-        }
-
-        Alerta alerta = new Alerta();
-        alerta.setTipo("AGOTAMIENTO_PROXIMO");
-        alerta.setPrioridad(prioridad);
+    private Alerta construirAlertaAgotamientoProximo(Insumo insumo, int diasEstimados, PrioridadAlerta prioridad) {
+        Alerta alerta = nuevaAlerta(TipoAlerta.AGOTAMIENTO_PROXIMO, prioridad);
         alerta.setTitulo("Agotamiento inminente: " + insumo.getNombre());
         alerta.setMensaje(String.format(
                 "El insumo '%s' se agotará en aproximadamente %d días según el consumo actual. Se recomienda realizar un pedido de reposición.",
@@ -230,59 +452,241 @@ public class AlertaServiceImpl implements AlertaService {
                 diasEstimados
         ));
         alerta.setInsumo(insumo);
-        alerta.setLeida(false);
+        alerta.asignarClaveDedup();
+        return alerta;
+    }
 
-        Alerta guardada = alertaRepository.save(alerta);
-        AlertaDTO dto = convertirADTO(guardada);
-        
-        // ⭐ ENVÍA POR WEBSOCKET EN TIEMPO REAL
-        webSocketController.enviarAlerta(dto);
-        System.out.println("⚠️ Alerta Agotamiento creada y enviada: " + insumo.getNombre());
-        
-        return dto;
+    /**
+     * Resumen de una tormenta de alertas de un mismo tipo.
+     * Los elementos afectados se listan en datosAdicionales (JSON).
+     */
+    private Alerta construirAlertaInventarioCritico(TipoAlerta tipoAgrupado, List<Alerta> agrupadas) {
+        // La prioridad del resumen es la más alta de las alertas agrupadas
+        PrioridadAlerta prioridad = PrioridadAlerta.BAJA;
+        List<Map<String, Object>> elementos = new ArrayList<>();
+
+        for (Alerta alerta : agrupadas) {
+            PrioridadAlerta prioridadAlerta = alerta.getPrioridad();
+            if (prioridadAlerta.esMasPrioritaria(prioridad)) {
+                prioridad = prioridadAlerta;
+            }
+
+            Map<String, Object> elemento = new LinkedHashMap<>();
+            elemento.put("prioridad", alerta.getPrioridad().name());
+            elemento.put("titulo", alerta.getTitulo());
+            if (alerta.getInsumo() != null) {
+                elemento.put("insumoId", alerta.getInsumo().getId());
+                elemento.put("insumoNombre", alerta.getInsumo().getNombre());
+            }
+            if (alerta.getLote() != null) {
+                elemento.put("loteId", alerta.getLote().getId());
+                elemento.put("loteNumero", alerta.getLote().getNumeroLote());
+            }
+            elementos.add(elemento);
+        }
+
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("tipoAgrupado", tipoAgrupado.name());
+        datos.put("total", agrupadas.size());
+        datos.put("elementos", elementos);
+
+        Alerta alerta = nuevaAlerta(TipoAlerta.INVENTARIO_CRITICO, prioridad);
+        alerta.setTitulo(String.format("Inventario crítico: %d alertas de %s",
+                agrupadas.size(), tipoAgrupado.getNombre()));
+        alerta.setMensaje(String.format(
+                "Se generaron demasiadas alertas de tipo '%s' en menos de %d segundos. Se agruparon %d en este resumen; el detalle está en los datos adicionales.",
+                tipoAgrupado.name(),
+                coalescedorAlertas.getVentanaMs() / 1000,
+                agrupadas.size()
+        ));
+        alerta.setDatosAdicionales(aJson(datos));
+        return alerta;
+    }
+
+    private String aJson(Map<String, Object> datos) {
+        try {
+            return objectMapper.writeValueAsString(datos);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudieron serializar los datos adicionales de la alerta", e);
+        }
+    }
+
+    // ==========================================
+    // INSERCIÓN POR LOTES Y ENVÍO
+    // ==========================================
+
+    /**
+     * Inserta una alerta si no existe otra igual hoy y la envía por WebSocket.
+     * 
+     * @return DTO de la alerta creada, o null si era un duplicado
+     */
+    private AlertaDTO insertarYEnviar(Alerta alerta) {
+        List<AlertaDTO> creadas = insertarYEnviar(List.of(alerta));
+        return creadas.isEmpty() ? null : creadas.get(0);
+    }
+
+    /**
+     * Inserta las alertas en un solo lote JDBC (los duplicados se descartan en la base de datos)
+     * y envía por WebSocket solo las que se crearon. Si un tipo supera el umbral de su ventana,
+     * el excedente se sustituye por un único resumen INVENTARIO_CRITICO.
+     */
+    private List<AlertaDTO> insertarYEnviar(List<Alerta> alertas) {
+        List<AlertaDTO> creadas = new ArrayList<>();
+        if (alertas.isEmpty()) {
+            return creadas;
+        }
+
+        CoalescedorAlertas.Reparto reparto = coalescedorAlertas.repartir(alertas);
+        List<Alerta> aInsertar = new ArrayList<>(reparto.individuales());
+        reparto.agrupadasPorTipo().forEach((tipo, agrupadas) ->
+                aInsertar.add(construirAlertaInventarioCritico(tipo, agrupadas)));
+
+        List<Alerta> insertadas = alertaRepository.insertarSiNoExisten(aInsertar);
+        coalescedorAlertas.registrarEnviadas(insertadas);
+
+        // Fan-out en escritura: una entrada de bandeja por destinatario, en un solo lote
+        List<AlertaDestinatario> entradas = new ArrayList<>();
+        for (Alerta alerta : insertadas) {
+            for (String usuario : destinatariosDe(alerta)) {
+                entradas.add(new AlertaDestinatario(null, alerta, usuario, false, alerta.getFechaCreacion(), null));
+            }
+        }
+        alertaDestinatarioRepository.insertarTodos(entradas);
+        entradas.forEach(entrada -> contadoresAlertas.registrarEnBandeja(entrada.getUsuario()));
+
+        for (Alerta alerta : insertadas) {
+            contadoresAlertas.registrarCreada(alerta);
+            escaladoAlertas.programar(alerta);
+            AlertaDTO dto = convertirADTO(alerta);
+            
+            // ⭐ ENVÍA POR WEBSOCKET EN TIEMPO REAL (después del commit, en la siguiente trama)
+            enviar(alerta, dto);
+            
+            creadas.add(dto);
+        }
+
+        if (!creadas.isEmpty()) {
+            System.out.println("🔔 " + creadas.size() + " alertas creadas y encoladas para WebSocket");
+        }
+
+        reparto.agrupadasPorTipo().values().forEach(coalescedorAlertas::registrarAgrupadas);
+
+        return creadas;
+    }
+
+    /**
+     * Publica la alerta para el canal general (si no va dirigida a un usuario concreto) y cada bandeja.
+     * PublicadorAlertas la envía cuando se confirma la transacción en curso.
+     */
+    private void enviar(Alerta alerta, AlertaDTO dto) {
+        eventPublisher.publishEvent(AlertaPublicadaEvent.deAlerta(
+                dto, alerta.getUsuarioDestinatario() == null, destinatariosDe(alerta)));
+    }
+
+    /**
+     * Usuarios cuya bandeja recibe la alerta: su destinatario, o todos los usuarios configurados
+     */
+    private List<String> destinatariosDe(Alerta alerta) {
+        if (alerta.getUsuarioDestinatario() != null) {
+            return List.of(alerta.getUsuarioDestinatario());
+        }
+        return usuariosBandeja;
     }
 
+    // ==========================================
+    // ESCALADO
+    // ==========================================
+
+    /**
+     * Aplica el paso vencido de cada alerta en su propia transacción: si una falla, las demás
+     * se confirman igualmente y la que falló se vuelve a programar con un retardo creciente.
+     */
     @Override
-    public AlertaDTO crearAlertaPersonalizada(String tipo, String prioridad, String titulo, 
-                                             String mensaje, Long insumoId, Long loteId) {
-        Alerta alerta = new Alerta();
-        alerta.setTipo(tipo);
-        alerta.setPrioridad(prioridad);
-        alerta.setTitulo(titulo);
-        alerta.setMensaje(mensaje);
-        alerta.setLeida(false);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<AlertaDTO> escalarAlertas(Collection<Long> alertaIds) {
+        List<AlertaDTO> escaladas = new ArrayList<>();
+        Set<Long> leidasEnBandeja = new HashSet<>(alertaDestinatarioRepository.findAlertasLeidasEnBandeja(alertaIds));
 
-        if (insumoId != null) {
-            insumoRepository.findById(insumoId).ifPresent(alerta::setInsumo);
+        for (Long alertaId : alertaIds) {
+            if (leidasEnBandeja.contains(alertaId)) {
+                continue;
+            }
+            try {
+                AlertaDTO dto = transactionTemplate.execute(status -> escalarAlerta(alertaId));
+                if (dto != null) {
+                    escaladas.add(dto);
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Error escalando la alerta " + alertaId + ": " + e.getMessage());
+                escaladoAlertas.reintentar(alertaId);
+            }
         }
-        if (loteId != null) {
-            loteRepository.findById(loteId).ifPresent(alerta::setLote);
+        return escaladas;
+    }
+
+    // Aplica el paso que toca a la alerta; null si ya no procede (leída, sin pasos, no urgente o eliminada)
+    private AlertaDTO escalarAlerta(Long alertaId) {
+        Alerta alerta = alertaRepository.findById(alertaId).orElse(null);
+        if (alerta == null) {
+            return null;
         }
+        int nivel = alerta.getNivelEscalado() != null ? alerta.getNivelEscalado() : 0;
+        EscaladoAlertas.Paso paso = escaladoAlertas.getPaso(nivel);
 
-        Alerta guardada = alertaRepository.save(alerta);
-        AlertaDTO dto = convertirADTO(guardada);
-        
-        // ⭐ ENVÍA POR WEBSOCKET EN TIEMPO REAL
-        webSocketController.enviarAlerta(dto);
-        System.out.println("📬 Alerta Personalizada creada y enviada: " + titulo);
-        
+        // Pudo leerse entre la programación y el vencimiento (p. ej. en una operación masiva)
+        if (paso == null || Boolean.TRUE.equals(alerta.getLeida()) || !alerta.esUrgente()) {
+            return null;
+        }
+
+        aplicarPasoEscalado(alerta, paso.accion());
+        alerta.setNivelEscalado(nivel + 1);
+        alertaRepository.save(alerta);
+        escaladoAlertas.programar(alerta);
+
+        // Todos los pasos vuelven a notificar la alerta
+        AlertaDTO dto = convertirADTO(alerta);
+        enviar(alerta, dto);
+        System.out.println("⏫ Alerta " + alerta.getId() + " escalada (" + paso.accion() + "): " + alerta.getTitulo());
         return dto;
     }
 
+    private void aplicarPasoEscalado(Alerta alerta, EscaladoAlertas.Accion accion) {
+        switch (accion) {
+            case ELEVAR_PRIORIDAD:
+                if (alerta.getPrioridad() != PrioridadAlerta.CRITICA) {
+                    PrioridadAlerta anterior = alerta.getPrioridad();
+                    alerta.setPrioridad(PrioridadAlerta.CRITICA);
+                    contadoresAlertas.registrarCambioPrioridad(alerta, anterior);
+                }
+                break;
+            case REASIGNAR:
+                String usuario = escaladoAlertas.getUsuarioReasignacion();
+                // Si ya estaba en su bandeja, basta con volver a notificarla
+                if (!destinatariosDe(alerta).contains(usuario)) {
+                    alertaDestinatarioRepository.insertarTodos(List.of(
+                            new AlertaDestinatario(null, alerta, usuario, false, alerta.getFechaCreacion(), null)));
+                    contadoresAlertas.registrarEnBandeja(usuario);
+                }
+                alerta.setUsuarioDestinatario(usuario);
+                break;
+            default:
+                break;
+        }
+    }
+
     // ==========================================
     // VERIFICACIÓN Y GENERACIÓN AUTOMÁTICA
     // ==========================================
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<AlertaDTO> verificarYGenerarAlertas() {
-        List<AlertaDTO> alertasGeneradas = new ArrayList<>();
-
         System.out.println("🔍 Iniciando verificación de alertas automáticas...");
-        
-        alertasGeneradas.addAll(verificarAlertasStockBajo());
-        alertasGeneradas.addAll(verificarAlertasCaducidad());
-        alertasGeneradas.addAll(verificarAlertasVencidos());
-        alertasGeneradas.addAll(verificarAlertasAgotamiento());
+
+        // La reconciliación recarga la instantánea (cubre el paso del tiempo sobre el consumo)
+        // y evalúa todas las reglas en una sola pasada
+        inventarioEnMemoria.recargar();
+        List<AlertaDTO> alertasGeneradas = generarAlertas(null, null, null);
 
         System.out.println("✅ Verificación completada. Total de alertas generadas: " + alertasGeneradas.size());
         
@@ -290,71 +694,341 @@ public class AlertaServiceImpl implements AlertaService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<AlertaDTO> verificarAlertasStockBajo() {
-        List<AlertaDTO> alertas = new ArrayList<>();
-        List<Insumo> insumosBajoMinimo = insumoRepository.findInsumosBajoMinimo();
+        inventarioEnMemoria.refrescarPendientes();
+        return generarAlertas(null, null, TipoAlerta.STOCK_BAJO);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<AlertaDTO> verificarAlertasCaducidad() {
+        inventarioEnMemoria.refrescarPendientes();
+        return generarAlertas(null, null, TipoAlerta.CADUCIDAD);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<AlertaDTO> verificarAlertasVencidos() {
+        inventarioEnMemoria.refrescarPendientes();
+        return generarAlertas(null, null, TipoAlerta.VENCIDO);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<AlertaDTO> verificarAlertasAgotamiento() {
+        inventarioEnMemoria.refrescarPendientes();
+        return generarAlertas(null, null, TipoAlerta.AGOTAMIENTO_PROXIMO);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<AlertaDTO> verificarAlertasIncrementales(Set<Long> insumoIds, Set<Long> loteIds) {
+        if (insumoIds.isEmpty() && loteIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Los IDs recibidos se refrescan aunque su evento aún no haya llegado a la instantánea
+        inventarioEnMemoria.refrescar(insumoIds, loteIds);
+        return generarAlertas(insumoIds, loteIds, null);
+    }
 
-        for (Insumo insumo : insumosBajoMinimo) {
-            AlertaDTO alerta = crearAlertaStockBajo(insumo);
-            if (alerta != null) {
-                alertas.add(alerta);
+    /**
+     * Evalúa las reglas sobre la instantánea en memoria e inserta las alertas nuevas por bloques
+     *
+     * @param insumoIds Insumos a evaluar (null con loteIds null: toda la instantánea)
+     * @param loteIds   Lotes a evaluar
+     * @param soloTipo  Si no es null, solo se generan las alertas de ese tipo
+     */
+    private List<AlertaDTO> generarAlertas(Set<Long> insumoIds, Set<Long> loteIds, TipoAlerta soloTipo) {
+        long hoy = LocalDate.now().toEpochDay();
+        List<MotorReglasAlertas.Coincidencia> coincidencias = inventarioEnMemoria.leer(instantanea -> {
+            if (insumoIds == null) {
+                return motorReglas.evaluar(instantanea, hoy, null, null);
+            }
+            return motorReglas.evaluar(instantanea, hoy,
+                    filasDe(insumoIds, instantanea::filaInsumo), filasDe(loteIds, instantanea::filaLote));
+        });
+
+        Set<String> clavesRecientes = cargarClavesRecientes();
+        List<Alerta> nuevas = new ArrayList<>();
+
+        for (MotorReglasAlertas.Coincidencia coincidencia : coincidencias) {
+            if (soloTipo != null && coincidencia.tipo() != soloTipo) {
+                continue;
+            }
+            String clave = coincidencia.lote() != null
+                    ? claveLote(coincidencia.tipo(), coincidencia.lote().id())
+                    : claveInsumo(coincidencia.tipo(), coincidencia.insumo().id());
+            // add() devuelve false si ya existía una alerta hoy (o ya la generó otra regla en este ciclo)
+            if (clavesRecientes.add(clave)) {
+                nuevas.add(construirAlerta(coincidencia));
             }
         }
 
-        return alertas;
+        return insertarPorBloques(nuevas);
     }
 
-    @Override
-    public List<AlertaDTO> verificarAlertasCaducidad() {
-        List<AlertaDTO> alertas = new ArrayList<>();
-        LocalDate hoy = LocalDate.now();
-        LocalDate en30Dias = hoy.plusDays(30);
+    // Filas de la instantánea de los IDs indicados (los que no están se omiten)
+    private static int[] filasDe(Set<Long> ids, ToIntFunction<Long> fila) {
+        return ids.stream().mapToInt(fila).filter(indice -> indice >= 0).toArray();
+    }
+
+    // ==========================================
+    // INSTANTÁNEA DEL INVENTARIO
+    // ==========================================
+
+    /**
+     * Prioridad de una alerta creada para un insumo concreto, según las reglas de su tipo
+     * (se evalúa sobre una instantánea de una sola fila)
+     */
+    private PrioridadAlerta prioridadDe(TipoAlerta tipo, Insumo insumo, double diasHastaAgotamiento,
+                                        PrioridadAlerta porDefecto) {
+        long hoy = LocalDate.now().toEpochDay();
+        long fechaAgotamiento = Double.isNaN(diasHastaAgotamiento)
+                ? InstantaneaInventario.SIN_DATO : hoy + (long) Math.ceil(diasHastaAgotamiento);
+        InstantaneaInventario instantanea = new InstantaneaInventario();
+        agregarInsumo(instantanea, insumo, fechaAgotamiento);
+        return motorReglas.prioridadPara(tipo, AmbitoRegla.INSUMO, instantanea, 0, hoy, porDefecto);
+    }
+
+    /**
+     * Prioridad de una alerta creada para un lote concreto a "diasHastaCaducidad" días de caducar
+     */
+    private PrioridadAlerta prioridadDe(TipoAlerta tipo, Lote lote, long diasHastaCaducidad,
+                                        PrioridadAlerta porDefecto) {
+        InstantaneaInventario instantanea = new InstantaneaInventario();
+        agregarInsumo(instantanea, lote.getInsumo(), InstantaneaInventario.SIN_DATO);
+        instantanea.actualizarLote(lote.getId(), lote.getNumeroLote(), lote.getFechaCaducidad(),
+                lote.getCantidadActual(), lote.getInsumo().getId(), true);
+        long hoy = lote.getFechaCaducidad().toEpochDay() - diasHastaCaducidad;
+        return motorReglas.prioridadPara(tipo, AmbitoRegla.LOTE, instantanea, 0, hoy, porDefecto);
+    }
+
+    private static void agregarInsumo(InstantaneaInventario instantanea, Insumo insumo, long fechaAgotamiento) {
+        instantanea.actualizarInsumo(insumo.getId(), insumo.getNombre(), insumo.getCodigoCatalogo(),
+                insumo.getCantidadActual(), insumo.getCantidadMinima(), insumo.getCategoria(),
+                true, Double.NaN, fechaAgotamiento);
+    }
+
+    // Insumo ligero para la alerta (solo los campos que usan la alerta, el mensaje y el DTO)
+    private static Insumo insumoDe(EstadoInsumo estado) {
+        Insumo insumo = new Insumo();
+        insumo.setId(estado.id());
+        insumo.setNombre(estado.nombre());
+        insumo.setCodigoCatalogo(estado.codigoCatalogo());
+        insumo.setCategoria(estado.categoria());
+        insumo.setCantidadActual(aBigDecimal(estado.cantidadActual()));
+        insumo.setCantidadMinima(aBigDecimal(estado.cantidadMinima()));
+        return insumo;
+    }
+
+    // Si el insumo del lote no está en la instantánea se carga, para no perder su nombre y categoría
+    private Lote loteDe(EstadoLote estado) {
+        Insumo insumo;
+        if (estado.insumo() != null) {
+            insumo = insumoDe(estado.insumo());
+        } else {
+            insumo = insumoRepository.findById(estado.insumoId()).orElseGet(() -> {
+                Insumo soloId = new Insumo();
+                soloId.setId(estado.insumoId());
+                return soloId;
+            });
+        }
+
+        Lote lote = new Lote();
+        lote.setId(estado.id());
+        lote.setNumeroLote(estado.numeroLote());
+        lote.setFechaCaducidad(estado.fechaCaducidad());
+        lote.setCantidadActual(aBigDecimal(estado.cantidadActual()));
+        lote.setInsumo(insumo);
+        return lote;
+    }
+
+    private static BigDecimal aBigDecimal(double valor) {
+        return Double.isNaN(valor) ? null : BigDecimal.valueOf(valor);
+    }
+
+    // ==========================================
+    // INSERCIÓN POR BLOQUES
+    // ==========================================
+
+    /**
+     * Inserta las alertas por bloques, cada uno en su propia transacción corta; al terminar
+     * se escribe y se vacía el contexto de persistencia, así los bloqueos duran lo que dura un bloque.
+     */
+    private List<AlertaDTO> insertarPorBloques(List<Alerta> alertas) {
+        List<AlertaDTO> creadas = new ArrayList<>();
+
+        for (int inicio = 0; inicio < alertas.size(); inicio += tamanoBloque) {
+            List<Alerta> bloque = alertas.subList(inicio, Math.min(inicio + tamanoBloque, alertas.size()));
+            creadas.addAll(transactionTemplate.execute(status -> {
+                List<AlertaDTO> generadas = insertarYEnviar(bloque);
+                cerrarBloque();
+                return generadas;
+            }));
+        }
+
+        return creadas;
+    }
+
+    // Escribe las alertas del bloque y libera las entidades del contexto de persistencia
+    private void cerrarBloque() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // ==========================================
+    // CLAVES DE DUPLICADOS EN MEMORIA
+    // ==========================================
 
-        List<Lote> lotesProximos = loteRepository.findLotesProximosAVencer(hoy, en30Dias);
+    /**
+     * Carga en una sola consulta las claves de las alertas creadas hoy.
+     * Es un filtro previo que evita intentar insertar duplicados conocidos;
+     * la restricción única sobre clave_dedup sigue siendo la garantía final.
+     */
+    private Set<String> cargarClavesRecientes() {
+        LocalDateTime inicioDelDia = LocalDate.now().atStartOfDay();
+        Set<String> claves = new HashSet<>();
 
-        for (Lote lote : lotesProximos) {
-            long diasRestantes = ChronoUnit.DAYS.between(hoy, lote.getFechaCaducidad());
-            AlertaDTO alerta = crearAlertaCaducidad(lote, (int) diasRestantes);
-            if (alerta != null) {
-                alertas.add(alerta);
+        for (Object[] fila : alertaRepository.findClavesAlertasRecientes(inicioDelDia)) {
+            TipoAlerta tipo = (TipoAlerta) fila[0];
+            if (fila[1] != null) {
+                claves.add(claveInsumo(tipo, ((Number) fila[1]).longValue()));
             }
+            if (fila[2] != null) {
+                claves.add(claveLote(tipo, ((Number) fila[2]).longValue()));
+            }
+        }
+
+        // Elementos notificados hoy solo dentro de un resumen INVENTARIO_CRITICO
+        for (CoalescedorAlertas.ElementoAgrupado elemento : coalescedorAlertas.getAgrupadosHoy()) {
+            if (elemento.insumoId() != null) {
+                claves.add(claveInsumo(elemento.tipo(), elemento.insumoId()));
+            }
+            if (elemento.loteId() != null) {
+                claves.add(claveLote(elemento.tipo(), elemento.loteId()));
+            }
+        }
+
+        return claves;
+    }
+
+    private static String claveInsumo(TipoAlerta tipo, Long insumoId) {
+        return tipo.name() + ":insumo:" + insumoId;
+    }
+
+    private static String claveLote(TipoAlerta tipo, Long loteId) {
+        return tipo.name() + ":lote:" + loteId;
+    }
+
+    private static <T> T requerido(T valor, String campo) {
+        if (valor == null) {
+            throw new IllegalArgumentException("El parámetro '" + campo + "' es obligatorio");
         }
+        return valor;
+    }
+
+    // ==========================================
+    // BANDEJA POR USUARIO
+    // ==========================================
 
-        return alertas;
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaAlertasDTO listarBandeja(String usuario, String cursor, int tamano) {
+        String usuarioBandeja = requerido(normalizarUsuario(usuario), "usuario");
+        return paginar(cursor, tamano, (fecha, id, pagina) ->
+                alertaDestinatarioRepository.findPaginaDesde(usuarioBandeja, fecha, id, pagina));
     }
 
     @Override
-    public List<AlertaDTO> verificarAlertasVencidos() {
-        List<AlertaDTO> alertas = new ArrayList<>();
-        List<Lote> lotesVencidos = loteRepository.findLotesVencidos(LocalDate.now());
+    @Transactional(readOnly = true)
+    public PaginaAlertasDTO listarNoLeidasBandeja(String usuario, String cursor, int tamano) {
+        String usuarioBandeja = requerido(normalizarUsuario(usuario), "usuario");
+        return paginar(cursor, tamano, (fecha, id, pagina) ->
+                alertaDestinatarioRepository.findPaginaNoLeidasDesde(usuarioBandeja, fecha, id, pagina));
+    }
 
-        for (Lote lote : lotesVencidos) {
-            AlertaDTO alerta = crearAlertaVencido(lote);
-            if (alerta != null) {
-                alertas.add(alerta);
-            }
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Long contarNoLeidasBandeja(String usuario) {
+        return contadoresAlertas.contarNoLeidasEnBandeja(requerido(normalizarUsuario(usuario), "usuario"));
+    }
+
+    @Override
+    public boolean marcarComoLeidaEnBandeja(String usuario, Long alertaId) {
+        String usuarioBandeja = requerido(normalizarUsuario(usuario), "usuario");
+        int marcadas = alertaDestinatarioRepository.marcarLeida(usuarioBandeja, alertaId, LocalDateTime.now());
+        if (marcadas > 0) {
+            contadoresAlertas.registrarLeidasEnBandeja(usuarioBandeja, marcadas);
+            // Un destinatario ya la vio: deja de escalarse
+            escaladoAlertas.cancelar(List.of(alertaId));
         }
+        return marcadas > 0;
+    }
 
-        return alertas;
+    @Override
+    public int marcarTodasComoLeidasEnBandeja(String usuario) {
+        String usuarioBandeja = requerido(normalizarUsuario(usuario), "usuario");
+        List<Long> conEscalado = alertaDestinatarioRepository.findIdsUrgentesNoLeidas(usuarioBandeja);
+        int marcadas = alertaDestinatarioRepository.marcarTodasLeidas(usuarioBandeja, LocalDateTime.now());
+        if (marcadas > 0) {
+            contadoresAlertas.registrarLeidasEnBandeja(usuarioBandeja, marcadas);
+            escaladoAlertas.cancelar(conEscalado);
+        }
+        return marcadas;
     }
 
+    // ==========================================
+    // REANUDACIÓN WEBSOCKET
+    // ==========================================
+
+    /**
+     * Alertas que le faltan a un cliente reconectado (del canal general, o de su bandeja si indica
+     * usuario), en una sola respuesta. Si el búfer de repetición del despachador cubre su última
+     * secuencia no se consulta MySQL; si no, se leen las alertas posteriores a su último ID
+     * (o las no leídas si no recibió ninguna), siempre en orden de ID: si no caben en una
+     * respuesta (completa = false), el cliente pide el resto desde la última recibida.
+     */
     @Override
-    public List<AlertaDTO> verificarAlertasAgotamiento() {
-        List<AlertaDTO> alertas = new ArrayList<>();
-        List<Insumo> insumosActivos = insumoRepository.findByEstado("activo");
+    @Transactional(readOnly = true)
+    public ReanudacionAlertasDTO reanudarSincronizacion(String usuario, SolicitudReanudacionDTO solicitud) {
+        String usuarioBandeja = normalizarUsuario(usuario);
 
-        for (Insumo insumo : insumosActivos) {
-            Integer diasEstimados = consumoService.predecirDiasHastaAgotamiento(insumo.getId());
-            
-            if (diasEstimados != null && diasEstimados <= 14) {
-                AlertaDTO alerta = crearAlertaAgotamientoProximo(insumo, diasEstimados);
-                if (alerta != null) {
-                    alertas.add(alerta);
-                }
+        if (solicitud != null && solicitud.getInstancia() != null && solicitud.getUltimaSecuencia() != null) {
+            ReanudacionAlertasDTO repeticion = despachadorAlertas.repetirDesde(
+                    usuarioBandeja, solicitud.getInstancia(), solicitud.getUltimaSecuencia());
+            if (repeticion != null) {
+                return repeticion;
             }
         }
 
-        return alertas;
+        // Secuencia anterior a la consulta: lo publicado mientras tanto se repite en la siguiente reanudación
+        long ultimaSecuencia = despachadorAlertas.getUltimaSecuencia();
+        Long ultimaAlertaId = solicitud != null ? solicitud.getUltimaAlertaId() : null;
+        Pageable limite = PageRequest.of(0, maxReanudacion + 1);
+
+        List<AlertaDTO> alertas;
+        if (usuarioBandeja == null) {
+            alertas = ultimaAlertaId != null
+                    ? alertaRepository.findGeneralesPosterioresA(ultimaAlertaId, limite)
+                    : alertaRepository.findGeneralesNoLeidasPosterioresA(0L, limite);
+        } else {
+            alertas = ultimaAlertaId != null
+                    ? alertaDestinatarioRepository.findPosterioresA(usuarioBandeja, ultimaAlertaId, limite)
+                    : alertaDestinatarioRepository.findNoLeidasPosterioresA(usuarioBandeja, 0L, limite);
+        }
+
+        boolean completa = alertas.size() <= maxReanudacion;
+        if (!completa) {
+            alertas = alertas.subList(0, maxReanudacion);
+        }
+
+        return new ReanudacionAlertasDTO(despachadorAlertas.getInstancia(), ultimaSecuencia,
+                "BASE_DATOS", completa, new ArrayList<>(alertas));
+    }
+
+    private static String normalizarUsuario(String usuario) {
+        return usuario == null || usuario.isBlank() ? null : usuario.trim();
     }
 
     // ==========================================
@@ -363,63 +1037,118 @@ public class AlertaServiceImpl implements AlertaService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<AlertaDTO> buscarPorTipo(String tipo) {
-        return alertaRepository.findByTipo(tipo)
-                .stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+    public PaginaAlertasDTO buscarPorTipo(String tipo, String cursor, int tamano) {
+        TipoAlerta tipoAlerta = requerido(TipoAlerta.desdeTexto(tipo), "tipo");
+        return paginar(cursor, tamano, (fecha, id, pagina) ->
+                alertaRepository.findPaginaPorTipoDesde(tipoAlerta, fecha, id, pagina));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<AlertaDTO> buscarPorPrioridad(String prioridad) {
-        return alertaRepository.findByPrioridad(prioridad)
-                .stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+    public PaginaAlertasDTO buscarPorPrioridad(String prioridad, String cursor, int tamano) {
+        PrioridadAlerta prioridadAlerta = requerido(PrioridadAlerta.desdeTexto(prioridad), "prioridad");
+        return paginar(cursor, tamano, (fecha, id, pagina) ->
+                alertaRepository.findPaginaPorPrioridadDesde(prioridadAlerta, fecha, id, pagina));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<AlertaDTO> buscarPorInsumo(Long insumoId) {
-        return alertaRepository.findByInsumoId(insumoId)
-                .stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+    public PaginaAlertasDTO buscarPorInsumo(Long insumoId, String cursor, int tamano) {
+        return paginar(cursor, tamano, (fecha, id, pagina) ->
+                alertaRepository.findPaginaPorInsumoDesde(insumoId, fecha, id, pagina));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<AlertaDTO> buscarAlertasUrgentes() {
-        return alertaRepository.findAlertasUrgentes()
-                .stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+        return alertaRepository.findDTOUrgentes();
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<AlertaDTO> buscarAlertasDeHoy() {
-        return alertaRepository.findAlertasDeHoy()
-                .stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+        return alertaRepository.findDTODeHoy(LocalDate.now().atStartOfDay());
+    }
+
+    // ==========================================
+    // PAGINACIÓN POR CURSOR
+    // ==========================================
+
+    /**
+     * Consulta de una página ordenada por (fechaCreacion, id) descendente,
+     * con las alertas estrictamente anteriores a la posición (fecha, id)
+     */
+    private interface ConsultaPagina {
+        List<AlertaDTO> buscar(LocalDateTime fecha, Long id, Pageable pagina);
+    }
+
+    private PaginaAlertasDTO paginar(String cursor, int tamano, ConsultaPagina consulta) {
+        int tamanoPagina = Math.max(1, Math.min(tamano, TAMANO_MAXIMO_PAGINA));
+
+        // Sin cursor se empieza por la alerta más reciente
+        LocalDateTime fecha = FECHA_CURSOR_INICIAL;
+        Long id = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                fecha = LocalDateTime.parse(partes[0]);
+                id = Long.valueOf(partes[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+        }
+
+        // Se pide un elemento de más para saber si hay página siguiente
+        List<AlertaDTO> alertas = consulta.buscar(fecha, id, PageRequest.of(0, tamanoPagina + 1));
+
+        String siguienteCursor = null;
+        if (alertas.size() > tamanoPagina) {
+            alertas = new ArrayList<>(alertas.subList(0, tamanoPagina));
+            AlertaDTO ultima = alertas.get(tamanoPagina - 1);
+            String posicion = ultima.getFechaCreacion() + "|" + ultima.getId();
+            siguienteCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(posicion.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new PaginaAlertasDTO(alertas, siguienteCursor);
     }
 
     // ==========================================
     // ESTADÍSTICAS
     // ==========================================
 
+    // Se responden desde los contadores en memoria, sin consultar la base de datos
+
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Long contarNoLeidas() {
-        return alertaRepository.countByLeidaFalse();
+        return contadoresAlertas.contarNoLeidas();
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Long contarPorPrioridad(String prioridad) {
-        return alertaRepository.countByLeidaFalseAndPrioridad(prioridad);
+        return contadoresAlertas.contarNoLeidasPorPrioridad(
+                requerido(PrioridadAlerta.desdeTexto(prioridad), "prioridad"));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Long contarPorTipo(String tipo) {
+        return contadoresAlertas.contarPorTipo(requerido(TipoAlerta.desdeTexto(tipo), "tipo"));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Long contarUrgentes() {
+        return contadoresAlertas.contarNoLeidasPorPrioridad(PrioridadAlerta.CRITICA)
+                + contadoresAlertas.contarNoLeidasPorPrioridad(PrioridadAlerta.ALTA);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Long contarDeHoy() {
+        return contadoresAlertas.contarCreadasHoy();
     }
 
     // ==========================================
@@ -427,9 +1156,14 @@ public class AlertaServiceImpl implements AlertaService {
     // ==========================================
 
     @Override
-    public void limpiarAlertasAntiguas(int diasAntiguedad) {
+    // Sin transacción envolvente: cada bloque de la limpieza confirma por separado
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResultadoLimpiezaDTO limpiarAlertasAntiguas(int diasAntiguedad) {
+        if (diasAntiguedad < 1) {
+            throw new IllegalArgumentException("La antigüedad mínima es de 1 día");
+        }
         LocalDateTime fechaLimite = LocalDateTime.now().minusDays(diasAntiguedad);
-        alertaRepository.eliminarAlertasAntiguasLeidas(fechaLimite);
+        return retencionAlertas.limpiar(fechaLimite);
     }
 
     // ==========================================
@@ -440,8 +1174,8 @@ public class AlertaServiceImpl implements AlertaService {
         AlertaDTO dto = new AlertaDTO();
         
         dto.setId(alerta.getId());
-        dto.setTipo(alerta.getTipo());
-        dto.setPrioridad(alerta.getPrioridad());
+        dto.setTipo(alerta.getTipo().name());
+        dto.setPrioridad(alerta.getPrioridad().name());
         dto.setTitulo(alerta.getTitulo());
         dto.setMensaje(alerta.getMensaje());
         dto.setLeida(alerta.getLeida());
@@ -455,6 +1189,7 @@ public class AlertaServiceImpl implements AlertaService {
             dto.setInsumoId(alerta.getInsumo().getId());
             dto.setInsumoNombre(alerta.getInsumo().getNombre());
             dto.setInsumoCodigoCatalogo(alerta.getInsumo().getCodigoCatalogo());
+            dto.setInsumoCategoria(alerta.getInsumo().getCategoria());
         }
 
         // Información del lote
@@ -13,8 +13,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 //import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.Collection;
 //import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +30,9 @@ public class ConsumoServiceImpl implements ConsumoService {
     @Autowired
     private InsumoRepository insumoRepository;
 
+    // Ventana de días usada para estimar el consumo promedio en las predicciones
+    private static final int DIAS_PREDICCION = 30;
+
     @Override
     @Transactional(readOnly = true)
     public List<ConsumoHistoricoDTO> obtenerConsumoHistorico(Long insumoId, int dias) {
@@ -93,27 +99,36 @@ public class ConsumoServiceImpl implements ConsumoService {
     public Integer predecirDiasHastaAgotamiento(Long insumoId) {
         Insumo insumo = insumoRepository.findById(insumoId).orElse(null);
         
-        if (insumo == null || insumo.getCantidadActual() == null) {
+        if (insumo == null) {
             return null;
         }
         
-        // Si no hay cantidad, ya está agotado
-        if (insumo.getCantidadActual().compareTo(BigDecimal.ZERO) <= 0) {
-            return 0;
-        }
-        
         // Calcular promedio de consumo diario de los últimos 30 días
-        Double promedioConsumo = calcularPromedioConsumo(insumoId, 30);
+        Double promedioConsumo = calcularPromedioConsumo(insumoId, DIAS_PREDICCION);
         
-        if (promedioConsumo == null || promedioConsumo <= 0) {
-            return null; // No hay datos suficientes o no hay consumo
+        return calcularDiasHastaAgotamiento(insumo.getCantidadActual(), promedioConsumo);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> predecirDiasHastaAgotamientoActivos() {
+        LocalDate fechaInicio = LocalDate.now().minusDays(DIAS_PREDICCION);
+        LocalDate fechaFin = LocalDate.now();
+        
+        return convertirAPredicciones(salidaRepository.calcularStockYSalidasInsumosActivos(fechaInicio, fechaFin));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> predecirDiasHastaAgotamiento(Collection<Long> insumoIds) {
+        if (insumoIds.isEmpty()) {
+            return new HashMap<>();
         }
         
-        // Calcular días hasta agotamiento
-        double cantidadActual = insumo.getCantidadActual().doubleValue();
-        int diasEstimados = (int) Math.ceil(cantidadActual / promedioConsumo);
+        LocalDate fechaInicio = LocalDate.now().minusDays(DIAS_PREDICCION);
+        LocalDate fechaFin = LocalDate.now();
         
-        return diasEstimados;
+        return convertirAPredicciones(salidaRepository.calcularStockYSalidasInsumos(insumoIds, fechaInicio, fechaFin));
     }
 
     @Override
@@ -141,6 +156,51 @@ public class ConsumoServiceImpl implements ConsumoService {
         return total != null ? total : 0.0;
     }
 
+    // ==========================================
+    // MÉTODOS PRIVADOS DE CÁLCULO
+    // ==========================================
+
+    /**
+     * Convierte filas [insumoId, cantidadActual, totalSalidas] en días estimados por insumo
+     */
+    private Map<Long, Integer> convertirAPredicciones(List<Object[]> filas) {
+        Map<Long, Integer> predicciones = new HashMap<>();
+        
+        for (Object[] fila : filas) {
+            Long insumoId = ((Number) fila[0]).longValue();
+            BigDecimal cantidadActual = (BigDecimal) fila[1];
+            double totalConsumido = fila[2] != null ? ((Number) fila[2]).doubleValue() : 0.0;
+            
+            Integer diasEstimados = calcularDiasHastaAgotamiento(cantidadActual, totalConsumido / DIAS_PREDICCION);
+            if (diasEstimados != null) {
+                predicciones.put(insumoId, diasEstimados);
+            }
+        }
+        
+        return predicciones;
+    }
+
+    /**
+     * Días hasta agotar el stock con el promedio diario dado.
+     * Devuelve 0 si ya no hay stock y null si no hay datos o no hay consumo.
+     */
+    private Integer calcularDiasHastaAgotamiento(BigDecimal cantidadActual, Double promedioConsumo) {
+        if (cantidadActual == null) {
+            return null;
+        }
+        
+        // Si no hay cantidad, ya está agotado
+        if (cantidadActual.compareTo(BigDecimal.ZERO) <= 0) {
+            return 0;
+        }
+        
+        if (promedioConsumo == null || promedioConsumo <= 0) {
+            return null; // No hay datos suficientes o no hay consumo
+        }
+        
+        return (int) Math.ceil(cantidadActual.doubleValue() / promedioConsumo);
+    }
+
     // ==========================================
     // MÉTODOS PRIVADOS DE CONVERSIÓN
     // ==========================================
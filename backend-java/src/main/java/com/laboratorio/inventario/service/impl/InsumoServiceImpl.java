@@ -2,9 +2,11 @@ package com.laboratorio.inventario.service.impl;
 
 import com.laboratorio.inventario.dto.InsumoDTO;
 import com.laboratorio.inventario.entity.Insumo;
+import com.laboratorio.inventario.event.InventarioModificadoEvent;
 import com.laboratorio.inventario.repository.InsumoRepository;
 import com.laboratorio.inventario.service.InsumoService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.Map;
@@ -20,6 +22,9 @@ public class InsumoServiceImpl implements InsumoService {
     @Autowired
     private InsumoRepository insumoRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // ==========================================
     // MÉTODOS CRUD BÁSICOS
     // ==========================================
@@ -55,6 +60,7 @@ public class InsumoServiceImpl implements InsumoService {
         insumo.calcularNivelAlerta();
         
         Insumo insumoGuardado = insumoRepository.save(insumo);
+        eventPublisher.publishEvent(InventarioModificadoEvent.deInsumo(insumoGuardado.getId()));
         return convertirADTO(insumoGuardado);
     }
 
@@ -83,6 +89,7 @@ public class InsumoServiceImpl implements InsumoService {
                     insumo.calcularNivelAlerta();
                     
                     Insumo guardado = insumoRepository.save(insumo);
+                    eventPublisher.publishEvent(InventarioModificadoEvent.deInsumo(guardado.getId()));
                     return convertirADTO(guardado);
                 })
                 .orElseThrow(() -> new RuntimeException("Insumo no encontrado con id: " + id));
@@ -94,6 +101,7 @@ public class InsumoServiceImpl implements InsumoService {
                 .ifPresent(insumo -> {
                     insumo.setEstado("inactivo");
                     insumoRepository.save(insumo);
+                    eventPublisher.publishEvent(InventarioModificadoEvent.deInsumo(insumo.getId()));
                 });
     }
 
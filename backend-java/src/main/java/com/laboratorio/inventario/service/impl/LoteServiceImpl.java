@@ -2,9 +2,11 @@ package com.laboratorio.inventario.service.impl;
 
 import com.laboratorio.inventario.dto.LoteCaducidadDTO;
 import com.laboratorio.inventario.entity.Lote;
+import com.laboratorio.inventario.event.InventarioModificadoEvent;
 import com.laboratorio.inventario.repository.LoteRepository;
 import com.laboratorio.inventario.service.LoteService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +23,9 @@ public class LoteServiceImpl implements LoteService {
     @Autowired
     private LoteRepository loteRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // ==========================================
     // MÉTODOS CRUD BÁSICOS
     // ==========================================
@@ -50,7 +55,9 @@ public class LoteServiceImpl implements LoteService {
             throw new IllegalArgumentException("La cantidad actual no puede ser mayor a la cantidad inicial");
         }
         
-        return loteRepository.save(lote);
+        Lote guardado = loteRepository.save(lote);
+        publicarCambio(guardado);
+        return guardado;
     }
 
     @Override
@@ -67,7 +74,9 @@ public class LoteServiceImpl implements LoteService {
                     lote.setEstado(loteActualizado.getEstado());
                     lote.setObservaciones(loteActualizado.getObservaciones());
                     
-                    return loteRepository.save(lote);
+                    Lote guardado = loteRepository.save(lote);
+                    publicarCambio(guardado);
+                    return guardado;
                 })
                 .orElseThrow(() -> new RuntimeException("Lote no encontrado con id: " + id));
     }
@@ -78,6 +87,7 @@ public class LoteServiceImpl implements LoteService {
                 .ifPresent(lote -> {
                     lote.setEstado("inactivo");
                     loteRepository.save(lote);
+                    publicarCambio(lote);
                 });
     }
 
@@ -221,6 +231,15 @@ public class LoteServiceImpl implements LoteService {
         }
     }
 
+    // ==========================================
+    // EVENTOS
+    // ==========================================
+
+    private void publicarCambio(Lote lote) {
+        Long insumoId = lote.getInsumo() != null ? lote.getInsumo().getId() : null;
+        eventPublisher.publishEvent(InventarioModificadoEvent.deLote(lote.getId(), insumoId));
+    }
+
     // ==========================================
     // MÉTODOS PRIVADOS DE CONVERSIÓN
     // ==========================================
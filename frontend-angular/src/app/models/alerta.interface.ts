@@ -15,6 +15,7 @@ export interface Alerta {
   insumoId?: number | null;
   insumoNombre?: string | null;
   insumoCodigoCatalogo?: string | null;
+  insumoCategoria?: string | null;
 
   // Información del lote relacionado
   loteId?: number | null;
@@ -38,12 +39,62 @@ export interface Alerta {
   minutosDesdeCreacion?: number;
 }
 
+/**
+ * Mensaje de /topic/alertas/masivo - Coincide con OperacionMasivaAlertasDTO del backend
+ * Criterio: lista de ids o filtro (los campos nulos no filtran)
+ */
+export interface OperacionMasivaAlertas {
+  operacion: 'MARCAR_LEIDAS' | 'ELIMINAR';
+  ids?: number[] | null;
+  tipo?: TipoAlerta | null;
+  prioridad?: PrioridadAlerta | null;
+  antesDe?: string | null;
+  afectadas: number;
+  fecha: string;
+}
+
+/**
+ * Respuesta de /user/queue/alertas/reanudar - Coincide con ReanudacionAlertasDTO del backend
+ * Alertas perdidas durante una desconexión y la posición desde la que continuar
+ */
+export interface ReanudacionAlertas {
+  instancia: string;
+  ultimaSecuencia: number;
+  origen: 'MEMORIA' | 'BASE_DATOS';
+  completa: boolean; // false: faltan más alertas, pedirlas con ultimaAlertaId = la última recibida
+  alertas: Alerta[];
+}
+
+// Helper: Temas de /topic/alertas/... que recibe una alerta (igual que DespachadorAlertas.temasDe)
+export function temasDeAlerta(alerta: Alerta): string[] {
+  const temas: string[] = [alerta.prioridad];
+  if (alerta.insumoId != null) {
+    temas.push(`insumo/${alerta.insumoId}`);
+  }
+  if (alerta.insumoCategoria && alerta.insumoCategoria.trim()) {
+    temas.push(`categoria/${alerta.insumoCategoria.trim().toUpperCase().replace(/[^\p{L}\p{N}-]/gu, '_')}`);
+  }
+  return temas;
+}
+
+// Helper: Verificar si una alerta cumple el criterio de una operación masiva
+export function cumpleOperacionMasiva(alerta: Alerta, operacion: OperacionMasivaAlertas): boolean {
+  if (operacion.ids) {
+    return operacion.ids.includes(alerta.id);
+  }
+  return (!operacion.tipo || alerta.tipo === operacion.tipo)
+    && (!operacion.prioridad || alerta.prioridad === operacion.prioridad)
+    && (!operacion.antesDe || alerta.fechaCreacion < operacion.antesDe);
+}
+
 // Enums para tipos
 export type TipoAlerta =
   | 'STOCK_BAJO'
   | 'CADUCIDAD'
   | 'VENCIDO'
   | 'AGOTAMIENTO_PROXIMO'
+  | 'REORDEN_SUGERIDO'
+  | 'INVENTARIO_CRITICO'
   | 'SISTEMA'
   | 'OTRO';
 
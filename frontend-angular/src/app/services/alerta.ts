@@ -5,10 +5,10 @@
  */
 
 import { Injectable, inject } from '@angular/core';
-import { BehaviorSubject, Observable, map, tap } from 'rxjs';
+import { BehaviorSubject, EMPTY, Observable, Subject, catchError, debounceTime, map, switchMap, tap } from 'rxjs';
 import { ApiService } from './api';
 import { WebSocketService } from './websocket';
-import { Alerta } from '../models/alerta.interface';
+import { Alerta, cumpleOperacionMasiva } from '../models/alerta.interface';
 
 @Injectable({
   providedIn: 'root'
@@ -18,14 +18,36 @@ export class AlertaService {
   private wsService = inject(WebSocketService); // ✅ Activado
   private endpoint = 'alertas';
 
+  // Usuario de la bandeja (localStorage 'usuarioLaboratorio'); sin usuario se usa la lista general
+  private usuario: string | null = localStorage.getItem('usuarioLaboratorio');
+
+  // Temas vigilados sin bandeja (localStorage 'temasAlertas', separados por comas: "CRITICA,insumo/12")
+  private temas: string[] = (localStorage.getItem('temasAlertas') || '')
+    .split(',').map(tema => tema.trim()).filter(tema => tema.length > 0);
+
   private alertasSubject = new BehaviorSubject<Alerta[]>([]);
   public alertas$ = this.alertasSubject.asObservable();
 
+  // Conteo de no leídas desde los contadores del servidor (la lista local solo tiene la primera página)
+  private conteoNoLeidasSubject = new BehaviorSubject<number>(0);
+  private refrescarConteo$ = new Subject<void>();
+
   constructor() {
     console.log('🚀 AlertaService inicializado');
 
+    // ✅ Una sola petición al contador por ráfaga de cambios
+    this.refrescarConteo$.pipe(
+      debounceTime(300),
+      switchMap(() => this.apiService.get<{ noLeidas: number }>(this.rutaContador()).pipe(
+        catchError(error => {
+          console.error('❌ Error al obtener el contador de no leídas:', error);
+          return EMPTY;
+        })
+      ))
+    ).subscribe(respuesta => this.conteoNoLeidasSubject.next(respuesta.noLeidas));
+
     // ✅ Conectar WebSocket al iniciar el servicio
-    this.wsService.connect();
+    this.wsService.connect(this.usuario, this.temas);
 
     // ✅ Suscribirse a las nuevas alertas del WebSocket
     this.wsService.alertas$.subscribe({
@@ -45,6 +67,7 @@ export class AlertaService {
 
           // Opcional: Mostrar notificación del navegador
           this.mostrarNotificacionNativa(nuevaAlerta);
+          this.refrescarConteo$.next();
         } else {
           console.log('⚠️ Alerta duplicada, no se añade');
         }
@@ -54,6 +77,18 @@ export class AlertaService {
       }
     });
 
+    // ✅ Aplicar las operaciones masivas a la lista local
+    this.wsService.operacionesMasivas$.subscribe(operacion => {
+      const alertas = this.alertasSubject.getValue();
+      if (operacion.operacion === 'ELIMINAR') {
+        this.alertasSubject.next(alertas.filter(a => !cumpleOperacionMasiva(a, operacion)));
+      } else {
+        this.alertasSubject.next(alertas.map(a =>
+          !a.leida && cumpleOperacionMasiva(a, operacion) ? { ...a, leida: true } : a));
+      }
+      this.refrescarConteo$.next();
+    });
+
     // ✅ Cargar alertas iniciales desde la API
     this.cargarAlertasIniciales();
   }
@@ -74,13 +109,16 @@ export class AlertaService {
   }
 
   /**
-   * Obtener todas las alertas desde la API
+   * Obtener la primera página de alertas (las más recientes) desde la API
+   * y refrescar el contador de no leídas
    */
   public getAlertas(): Observable<Alerta[]> {
-    return this.apiService.get<Alerta[]>(this.endpoint).pipe(
+    const ruta = this.usuario ? `${this.endpoint}/bandeja/${encodeURIComponent(this.usuario)}` : this.endpoint;
+    return this.apiService.get<Alerta[]>(ruta).pipe(
       tap(alertas => {
         // Actualizar el Subject con las alertas de la API
         this.alertasSubject.next(alertas);
+        this.refrescarConteo$.next();
         console.log('📊 Subject actualizado con alertas de la API');
       })
     );
@@ -97,11 +135,10 @@ export class AlertaService {
 
   /**
    * Obtener el conteo de alertas no leídas (reactivo)
+   * Viene de los contadores del servidor: cuenta también las que no están en la lista cargada
    */
   public getConteoNoLeidas(): Observable<number> {
-    return this.alertas$.pipe(
-      map(alertas => alertas.filter(alerta => !alerta.leida).length)
-    );
+    return this.conteoNoLeidasSubject.asObservable();
   }
 
   /**
@@ -121,6 +158,7 @@ export class AlertaService {
           this.alertasSubject.next([...alertas]);
           console.log('📊 Lista local actualizada');
         }
+        this.refrescarConteo$.next();
       })
     );
   }
@@ -137,6 +175,7 @@ export class AlertaService {
         const alertas = this.alertasSubject.getValue();
         const alertasActualizadas = alertas.map(a => ({ ...a, leida: true }));
         this.alertasSubject.next(alertasActualizadas);
+        this.refrescarConteo$.next();
       })
     );
   }
@@ -153,6 +192,7 @@ export class AlertaService {
         const alertas = this.alertasSubject.getValue();
         const alertasFiltradas = alertas.filter(a => a.id !== id);
         this.alertasSubject.next(alertasFiltradas);
+        this.refrescarConteo$.next();
       })
     );
   }
@@ -179,6 +219,15 @@ export class AlertaService {
     this.wsService.disconnect();
   }
 
+  /**
+   * Contador O(1) del servidor: el de la bandeja del usuario o el resumen global
+   */
+  private rutaContador(): string {
+    return this.usuario
+      ? `${this.endpoint}/bandeja/${encodeURIComponent(this.usuario)}/contador`
+      : `${this.endpoint}/resumen`;
+  }
+
   /**
    * Mostrar notificación nativa del navegador (opcional)
    */
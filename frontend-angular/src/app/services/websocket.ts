@@ -9,7 +9,7 @@ import { Injectable } from '@angular/core';
 import { Client, IMessage } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
 import { Subject, Observable, BehaviorSubject } from 'rxjs';
-import { Alerta } from '../models/alerta.interface';
+import { Alerta, OperacionMasivaAlertas, ReanudacionAlertas, temasDeAlerta } from '../models/alerta.interface';
 
 @Injectable({
   providedIn: 'root'
@@ -22,23 +22,55 @@ export class WebSocketService {
   private alertaSubject = new Subject<Alerta>();
   public alertas$: Observable<Alerta> = this.alertaSubject.asObservable();
 
+  // Subject para las operaciones masivas (marcar como leídas / eliminar varias)
+  private operacionMasivaSubject = new Subject<OperacionMasivaAlertas>();
+  public operacionesMasivas$: Observable<OperacionMasivaAlertas> = this.operacionMasivaSubject.asObservable();
+
   // Subject para el estado de conexión
   private conexionSubject = new BehaviorSubject<boolean>(false);
   public conexion$: Observable<boolean> = this.conexionSubject.asObservable();
 
+  // Usuario de la bandeja (null: canal general /topic/alertas)
+  private usuario: string | null = null;
+
+  // Temas del canal general a los que se limita el cliente (vacío: todo /topic/alertas)
+  private temas: string[] = [];
+
+  // Última posición recibida: al reconectar solo se piden las alertas que faltan
+  private instancia: string | null = null;
+  private ultimaSecuencia: number | null = null;
+  private ultimaAlertaId: number | null = null;
+
+  // Reanudación desde la base de datos que no cupo en una respuesta: se sigue pidiendo por ID
+  // y la posición no avanza hasta recibir la última parte
+  private reanudacionIncompleta = false;
+
   constructor() { }
 
   /**
    * Conecta al WebSocket del backend
+   * @param usuario Si se indica, se reciben solo las alertas de su bandeja (/user/queue/alertas)
+   * @param temas Sin usuario, recibir solo estos temas del canal general
+   *              (p. ej. 'CRITICA', 'insumo/12', 'categoria/REACTIVOS'); el filtrado se hace en el servidor
    */
-  public connect(): void {
+  public connect(usuario?: string | null, temas: string[] = []): void {
     console.log('🔌 Iniciando conexión WebSocket...');
+    if ((usuario || null) !== this.usuario) {
+      // Otra bandeja: la posición anterior no le sirve
+      this.instancia = this.ultimaSecuencia = this.ultimaAlertaId = null;
+      this.reanudacionIncompleta = false;
+    }
+    this.usuario = usuario || null;
+    this.temas = this.usuario ? [] : temas;
 
     // Creamos el cliente STOMP (forma moderna)
     this.stompClient = new Client({
       // Usar SockJS como transporte
       webSocketFactory: () => new SockJS(this.webSocketUrl),
 
+      // El backend asocia la sesión a este usuario para los destinos /user/...
+      connectHeaders: this.usuario ? { usuario: this.usuario } : {},
+
       // Configuración de reconexión automática
       reconnectDelay: 5000, // Reintentar cada 5 segundos
       heartbeatIncoming: 4000,
@@ -91,22 +123,121 @@ export class WebSocketService {
     }
 
     // ✅ Sin ":" al final
-    this.stompClient.subscribe('/topic/alertas', (message: IMessage) => {
-      console.log('🔔 Alerta recibida:', message.body);
+    const destinos = this.usuario
+      ? ['/user/queue/alertas']
+      : this.temas.length > 0 ? this.temas.map(tema => `/topic/alertas/${tema}`) : ['/topic/alertas'];
+    destinos.forEach(destino => this.subscribeToDestino(destino));
+
+    // Respuesta a la reanudación: solo las alertas perdidas mientras estaba desconectado
+    this.stompClient.subscribe('/user/queue/alertas/reanudar', (message: IMessage) => {
+      try {
+        const reanudacion: ReanudacionAlertas = JSON.parse(message.body);
+        // La reanudación trae el canal general completo: quedarse con los temas vigilados
+        const alertas = this.temas.length === 0 ? reanudacion.alertas
+          : reanudacion.alertas.filter(alerta => temasDeAlerta(alerta).some(tema => this.temas.includes(tema)));
+
+        if (reanudacion.completa === false) {
+          // Faltan alertas más recientes: continuar desde la última de esta parte (vienen en orden de ID)
+          alertas.forEach(alerta => this.alertaSubject.next(alerta));
+          const ids = reanudacion.alertas.map(alerta => alerta.id).filter((id): id is number => id != null);
+          if (ids.length > 0) {
+            this.ultimaAlertaId = Math.max(this.ultimaAlertaId ?? 0, ...ids);
+          }
+          this.reanudacionIncompleta = true;
+          console.log(`🔄 Reanudación parcial (${reanudacion.origen}): ${alertas.length} alerta(s), pidiendo el resto...`);
+          this.solicitarReanudacion();
+          return;
+        }
+
+        this.reanudacionIncompleta = false;
+        this.recibirTrama(alertas, reanudacion.instancia, reanudacion.ultimaSecuencia);
+        console.log(`🔄 Reanudación (${reanudacion.origen}): ${alertas.length} alerta(s)`);
+      } catch (error) {
+        console.error('❌ Error al parsear la reanudación:', error);
+      }
+    });
+
+    this.solicitarReanudacion();
+
+    // Un solo mensaje por operación masiva
+    this.stompClient.subscribe('/topic/alertas/masivo', (message: IMessage) => {
+      try {
+        const operacion: OperacionMasivaAlertas = JSON.parse(message.body);
+        this.operacionMasivaSubject.next(operacion);
+        console.log('✅ Operación masiva procesada:', operacion.operacion, operacion.afectadas);
+      } catch (error) {
+        console.error('❌ Error al parsear operación masiva:', error);
+      }
+    });
+
+    console.log('✅ Suscrito a /topic/alertas/masivo');
+  }
 
+  /**
+   * Suscribirse a un destino de tramas de alertas (canal general, un tema o la bandeja)
+   */
+  private subscribeToDestino(destino: string): void {
+    this.stompClient!.subscribe(destino, (message: IMessage) => {
       try {
-        const alerta: Alerta = JSON.parse(message.body);
+        // El backend agrupa las alertas en tramas: cada mensaje trae un arreglo de alertas
+        const cuerpo: Alerta | Alerta[] = JSON.parse(message.body);
+        const alertas: Alerta[] = Array.isArray(cuerpo) ? cuerpo : [cuerpo];
 
-        // Emitir la alerta a todos los suscriptores
-        this.alertaSubject.next(alerta);
+        // El servidor descartó tramas mientras este cliente iba lento: pedir lo perdido
+        // desde la posición anterior a esta trama
+        if (message.headers['tramasPerdidas']) {
+          console.warn(`⚠️ ${message.headers['tramasPerdidas']} trama(s) perdida(s), reanudando...`);
+          this.solicitarReanudacion();
+        }
 
-        console.log('✅ Alerta procesada:', alerta);
+        this.recibirTrama(alertas, message.headers['instancia'], message.headers['secuencia']);
+
+        console.log(`🔔 ${alertas.length} alerta(s) recibida(s)`);
       } catch (error) {
-        console.error('❌ Error al parsear alerta:', error);
+        console.error('❌ Error al parsear alertas:', error);
       }
     });
 
-    console.log('✅ Suscrito a /topic/alertas');
+    console.log(`✅ Suscrito a ${destino}`);
+  }
+
+  /**
+   * Pide al servidor las alertas posteriores a la última posición recibida
+   * (durante una reanudación incompleta, solo por ID: la secuencia aún no es válida)
+   */
+  private solicitarReanudacion(): void {
+    this.sendMessage('/app/alertas/reanudar', {
+      instancia: this.reanudacionIncompleta ? null : this.instancia,
+      ultimaSecuencia: this.reanudacionIncompleta ? null : this.ultimaSecuencia,
+      ultimaAlertaId: this.ultimaAlertaId
+    });
+  }
+
+  /**
+   * Emite las alertas de una trama y guarda la posición para la siguiente reanudación
+   */
+  private recibirTrama(alertas: Alerta[], instancia?: string | null, secuencia?: string | number | null): void {
+    if (this.reanudacionIncompleta) {
+      // Tramas en vivo mientras se recupera lo perdido: se emiten sin mover la posición
+      alertas.forEach(alerta => this.alertaSubject.next(alerta));
+      return;
+    }
+
+    if (instancia && secuencia != null) {
+      if (instancia !== this.instancia) {
+        this.ultimaSecuencia = null; // El servidor se reinició: las secuencias vuelven a empezar
+      }
+      this.instancia = instancia;
+      this.ultimaSecuencia = Math.max(this.ultimaSecuencia ?? 0, Number(secuencia));
+    }
+
+    // Emitir cada alerta a todos los suscriptores
+    alertas.forEach(alerta => {
+      if (alerta.id != null) {
+        this.ultimaAlertaId = Math.max(this.ultimaAlertaId ?? 0, alerta.id);
+      }
+      this.alertaSubject.next(alerta);
+    });
   }
 
   /**